@@ -0,0 +1,39 @@
+package krzysztof.nagraba.todoapp.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the authentication benchmarks at several thread counts with the GC profiler, which adds
+ * allocation rate (gc.alloc.rate.norm = bytes per operation) next to throughput.
+ * Extra JMH command line options are passed through, e.g. {@code -Djmh.args="-p stateless=true"}.
+ */
+public class AuthBenchmarks {
+
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine;
+        try {
+            commandLine = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        for (int threads : THREAD_COUNTS) {
+            OptionsBuilder options = new OptionsBuilder();
+            if (commandLine.getIncludes().isEmpty()) {
+                options.include(JwtServiceBenchmark.class.getSimpleName());
+                options.include(JwtAuthFilterBenchmark.class.getSimpleName());
+            }
+            options.parent(commandLine)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class);
+            new Runner(options.build()).run();
+        }
+    }
+}
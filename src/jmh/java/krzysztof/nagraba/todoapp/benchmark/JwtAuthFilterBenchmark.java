@@ -0,0 +1,87 @@
+package krzysztof.nagraba.todoapp.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import krzysztof.nagraba.todoapp.config.CustomUserDetails;
+import krzysztof.nagraba.todoapp.config.JwtAuthFilter;
+import krzysztof.nagraba.todoapp.config.JwtService;
+import krzysztof.nagraba.todoapp.config.SecurityEpochRegistry;
+import krzysztof.nagraba.todoapp.entity.Role;
+import krzysztof.nagraba.todoapp.service.TokenRevocationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full {@code doFilterInternal} pass per invocation, with the user lookup stubbed out so only
+ * the filter's own work (token parsing, checks, principal creation) is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FilterState {
+
+        @Param({"10000", "0"})
+        public long cacheSize;
+
+        @Param({"false", "true"})
+        public boolean stateless;
+
+        JwtAuthFilter filter;
+        String header;
+
+        @Setup
+        public void setUp() {
+            JwtService jwtService = new JwtService(JwtServiceBenchmark.SECRET, 60, cacheSize, new SimpleMeterRegistry());
+            CustomUserDetails user = new CustomUserDetails(1L, "user@test.com", "HASH", Role.USER, true);
+            UserDetailsService userDetailsService = username -> user;
+            SecurityEpochRegistry securityEpochs = new SecurityEpochRegistry(null);
+
+            filter = new JwtAuthFilter(
+                    jwtService,
+                    userDetailsService,
+                    securityEpochs,
+                    new TokenRevocationService(null, securityEpochs, 10_000, new SimpleMeterRegistry()),
+                    stateless);
+            header = "Bearer " + jwtService.generateToken("user@test.com", List.of("USER"), 1L, 0L);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RequestState {
+
+        MockHttpServletRequest request;
+        MockHttpServletResponse response;
+        FilterChain chain;
+
+        @Setup
+        public void setUp(FilterState filterState) {
+            request = new MockHttpServletRequest("GET", "/api/tasks");
+            request.addHeader("Authorization", filterState.header);
+            response = new MockHttpServletResponse();
+            chain = (req, res) -> { };
+        }
+
+        @TearDown(Level.Invocation)
+        public void clearContext() {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Benchmark
+    public Authentication doFilterInternal(FilterState filterState, RequestState requestState) throws Exception {
+        filterState.filter.doFilter(requestState.request, requestState.response, requestState.chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
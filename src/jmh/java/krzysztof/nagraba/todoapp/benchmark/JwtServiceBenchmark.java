@@ -0,0 +1,61 @@
+package krzysztof.nagraba.todoapp.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import krzysztof.nagraba.todoapp.config.JwtService;
+import krzysztof.nagraba.todoapp.config.VerifiedToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    static final String SECRET = Base64.getEncoder()
+            .encodeToString("benchmark-secret-benchmark-secret-123456".getBytes());
+
+    // 0 disables the verified-token cache, which measures a full parse and HMAC check per call.
+    @Param({"10000", "0"})
+    public long cacheSize;
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET, 60, cacheSize, new SimpleMeterRegistry());
+        token = jwtService.generateToken("user@test.com", List.of("USER"), 1L, 0L);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken("user@test.com", List.of("USER"), 1L, 0L);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return jwtService.isValid(token);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public List<String> extractRoles() {
+        return jwtService.extractRoles(token);
+    }
+
+    @Benchmark
+    public Optional<VerifiedToken> verify() {
+        return jwtService.verify(token);
+    }
+}
@@ -0,0 +1,87 @@
+-- Query plans for the task filters at scale (V7 indexes).
+-- Run against a database migrated by Flyway; everything is rolled back at the end:
+--   psql -d todoapp -f src/jmh/sql/task_filter_plans.sql
+-- Expect Index Scan / Index Only Scan nodes with bounded ranges on the composite indexes,
+-- never a Seq Scan on tasks, and execution times independent of the table size.
+
+\timing on
+begin;
+
+insert into users (email, password_hash, role, enabled)
+select 'bench' || g || '@test.com', 'HASH', 'USER', true
+from generate_series(1, 2000) g;
+
+-- 5M tasks: ~2500 per user, a third done, evenly spread quadrants, two years of creation dates.
+insert into tasks (task_title, status, created_date, urgency, importance, user_id)
+select 'Task ' || g,
+       (array['TODO', 'IN_PROGRESS', 'DONE'])[1 + g % 3],
+       timestamp '2024-01-01' + (g * interval '12 seconds'),
+       (array['URGENT', 'NOT_URGENT'])[1 + (g / 3) % 2],
+       (array['IMPORTANT', 'NOT_IMPORTANT'])[1 + (g / 7) % 2],
+       u.id
+from generate_series(1, 5000000) g
+join (select id, row_number() over (order by id) - 1 as n from users where email like 'bench%') u
+  on u.n = g % 2000;
+
+analyze users;
+analyze tasks;
+
+-- Owner's listing filtered by status: idx_tasks_user_status_created_id.
+explain (analyze, buffers)
+select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email
+from tasks t join users u on u.id = t.user_id
+where t.user_id = (select min(id) from users where email like 'bench%')
+  and t.status = 'TODO'
+order by t.created_date desc
+limit 20;
+
+-- Owner's open "do first" quadrant: partial idx_tasks_user_open_quadrant_created_id.
+explain (analyze, buffers)
+select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email
+from tasks t join users u on u.id = t.user_id
+where t.user_id = (select min(id) from users where email like 'bench%')
+  and t.status = 'IN_PROGRESS'
+  and t.urgency = 'URGENT'
+  and t.importance = 'IMPORTANT'
+order by t.created_date desc
+limit 20;
+
+-- Owner's quadrant inside a date range: range scan on the same composite index.
+explain (analyze, buffers)
+select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email
+from tasks t join users u on u.id = t.user_id
+where t.user_id = (select min(id) from users where email like 'bench%')
+  and t.urgency = 'URGENT'
+  and t.importance = 'NOT_IMPORTANT'
+  and t.created_date >= timestamp '2024-06-01'
+  and t.created_date < timestamp '2024-07-01'
+order by t.created_date desc
+limit 20;
+
+-- Count behind the owner's filtered page: index-only scan.
+explain (analyze, buffers)
+select count(*)
+from tasks t
+where t.user_id = (select min(id) from users where email like 'bench%')
+  and t.status = 'TODO';
+
+-- Admin quadrant listing across all users: idx_tasks_quadrant_created_id.
+explain (analyze, buffers)
+select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email
+from tasks t join users u on u.id = t.user_id
+where t.urgency = 'URGENT'
+  and t.importance = 'IMPORTANT'
+order by t.created_date desc
+limit 20;
+
+-- Admin status + date range: idx_tasks_status_created_id.
+explain (analyze, buffers)
+select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email
+from tasks t join users u on u.id = t.user_id
+where t.status = 'DONE'
+  and t.created_date >= timestamp '2024-03-01'
+  and t.created_date < timestamp '2024-03-02'
+order by t.created_date desc
+limit 20;
+
+rollback;
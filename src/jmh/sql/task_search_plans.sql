@@ -0,0 +1,61 @@
+-- Query plans for title search when a word matches most of a user's tasks (V6 and V8 indexes).
+-- Run against a database migrated by Flyway; everything is rolled back at the end:
+--   psql -d todoapp -f src/jmh/sql/task_search_plans.sql
+-- Expect the common word to walk idx_tasks_user_created_id and stop after the page, and the rare
+-- word to either do the same or take a bitmap scan on idx_tasks_user_title_search; neither plan
+-- should sort all matches, so pages stay flat as the user's task count grows.
+
+\timing on
+begin;
+
+insert into users (email, password_hash, role, enabled)
+values ('search-bench@test.com', 'HASH', 'USER', true);
+
+-- 200k tasks for one user: every title has "buy", one in a thousand also has "rare".
+insert into tasks (task_title, status, created_date, urgency, importance, user_id)
+select 'Buy item ' || g || case when g % 1000 = 0 then ' rare' else '' end,
+       'TODO',
+       timestamp '2024-01-01' + (g * interval '1 minute'),
+       'URGENT',
+       'IMPORTANT',
+       (select id from users where email = 'search-bench@test.com')
+from generate_series(1, 200000) g;
+
+analyze users;
+analyze tasks;
+
+-- First page for a word in every title.
+explain (analyze, buffers)
+select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email
+from tasks t
+join users u on u.id = t.user_id
+cross join to_tsquery('simple', 'buy:*') as q(query)
+where t.title_search @@ q.query
+  and t.user_id = (select id from users where email = 'search-bench@test.com')
+order by t.created_date desc, t.id desc
+limit 21;
+
+-- A deep page of the same search: the cursor becomes an index condition.
+explain (analyze, buffers)
+select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email
+from tasks t
+join users u on u.id = t.user_id
+cross join to_tsquery('simple', 'buy:*') as q(query)
+where t.title_search @@ q.query
+  and t.user_id = (select id from users where email = 'search-bench@test.com')
+  and (t.created_date, t.id) < (timestamp '2024-02-15', 9223372036854775807)
+order by t.created_date desc, t.id desc
+limit 21;
+
+-- First page for a rare word.
+explain (analyze, buffers)
+select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email
+from tasks t
+join users u on u.id = t.user_id
+cross join to_tsquery('simple', 'rare:*') as q(query)
+where t.title_search @@ q.query
+  and t.user_id = (select id from users where email = 'search-bench@test.com')
+order by t.created_date desc, t.id desc
+limit 21;
+
+rollback;
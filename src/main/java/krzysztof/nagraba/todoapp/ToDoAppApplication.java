@@ -2,8 +2,10 @@ package krzysztof.nagraba.todoapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ToDoAppApplication {
 
     public static void main(String[] args) {
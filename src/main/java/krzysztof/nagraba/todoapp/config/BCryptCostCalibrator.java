@@ -0,0 +1,66 @@
+package krzysztof.nagraba.todoapp.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Picks the BCrypt work factor whose hash time is closest to, but not above, a target latency
+ * on the current machine. Each extra cost step doubles the work, so one measurement at the
+ * minimum cost is enough to extrapolate the rest.
+ * <p>
+ * Logins only ever rehash upwards, so nodes on different hardware must not each use their own
+ * result: the fastest one would raise every user's cost for good. {@link #pinnedCost} stores the
+ * first calibration in the database and every later node reuses it.
+ */
+@Slf4j
+public final class BCryptCostCalibrator {
+
+    private static final int SAMPLES = 3;
+
+    private BCryptCostCalibrator() {}
+
+    public static int calibrate(Duration target, int minCost, int maxCost) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minCost);
+        encoder.encode("calibration-warmup");
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration-sample");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        int cost = costFor(Duration.ofNanos(best), target, minCost, maxCost);
+        log.info("BCrypt cost calibrated to {} (cost {} took {} ms, target {} ms)",
+                cost, minCost, Duration.ofNanos(best).toMillis(), target.toMillis());
+        return cost;
+    }
+
+    public static int pinnedCost(JdbcTemplate jdbcTemplate, IntSupplier calibration) {
+        List<Integer> stored = jdbcTemplate.queryForList(
+                "select bcrypt_cost from password_hashing_settings where id = 1", Integer.class);
+        if (!stored.isEmpty()) {
+            return stored.get(0);
+        }
+
+        // Nodes starting together may both calibrate; the first insert wins and both read it back.
+        jdbcTemplate.update("insert into password_hashing_settings (id, bcrypt_cost) values (1, ?) on conflict (id) do nothing",
+                calibration.getAsInt());
+        return jdbcTemplate.queryForObject("select bcrypt_cost from password_hashing_settings where id = 1", Integer.class);
+    }
+
+    static int costFor(Duration measuredAtMinCost, Duration target, int minCost, int maxCost) {
+        long measured = Math.max(1, measuredAtMinCost.toNanos());
+        int cost = minCost;
+        while (cost < maxCost && measured * 2 <= target.toNanos()) {
+            measured *= 2;
+            cost++;
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,88 @@
+package krzysztof.nagraba.todoapp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import krzysztof.nagraba.todoapp.exception.ExportLimitExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps running exports per user and per node. An export keeps a read-only transaction and a pooled
+ * connection open for the whole download, so without a cap a few slow clients could take the pool.
+ */
+@Component
+public class ExportLimiter {
+
+    private final Semaphore permits;
+    private final Map<Long, Integer> runningByUser = new ConcurrentHashMap<>();
+    private final int maxPerUser;
+    private final long retryAfterSeconds;
+    private final Counter rejectedByUser;
+    private final Counter rejectedByNode;
+
+    public ExportLimiter(@Value("${tasks.export.max-concurrent:4}") int maxConcurrent,
+                         @Value("${tasks.export.max-per-user:1}") int maxPerUser,
+                         @Value("${tasks.export.retry-after-seconds:30}") long retryAfterSeconds,
+                         MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxPerUser = maxPerUser;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.rejectedByUser = Counter.builder("tasks.export.rejected").tag("key", "user").register(meterRegistry);
+        this.rejectedByNode = Counter.builder("tasks.export.rejected").tag("key", "node").register(meterRegistry);
+        Gauge.builder("tasks.export.running", permits, semaphore -> maxConcurrent - semaphore.availablePermits())
+                .register(meterRegistry);
+    }
+
+    // The permit must be closed when the export body finishes, however it finishes.
+    public Permit acquire(Long userId) {
+        boolean[] admitted = new boolean[1];
+        runningByUser.compute(userId, (id, running) -> {
+            int current = running != null ? running : 0;
+            if (current >= maxPerUser) {
+                return running;
+            }
+            admitted[0] = true;
+            return current + 1;
+        });
+        if (!admitted[0]) {
+            rejectedByUser.increment();
+            throw new ExportLimitExceededException(false, retryAfterSeconds);
+        }
+
+        if (!permits.tryAcquire()) {
+            releaseUser(userId);
+            rejectedByNode.increment();
+            throw new ExportLimitExceededException(true, retryAfterSeconds);
+        }
+        return new Permit(userId);
+    }
+
+    private void releaseUser(Long userId) {
+        runningByUser.computeIfPresent(userId, (id, running) -> running > 1 ? running - 1 : null);
+    }
+
+    public final class Permit implements AutoCloseable {
+
+        private final Long userId;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Long userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+                releaseUser(userId);
+            }
+        }
+    }
+}
@@ -4,6 +4,9 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import krzysztof.nagraba.todoapp.entity.Role;
+import krzysztof.nagraba.todoapp.service.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,16 +15,27 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
-
-    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    private final SecurityEpochRegistry securityEpochs;
+    private final TokenRevocationService tokenRevocations;
+    private final boolean stateless;
+
+    public JwtAuthFilter(JwtService jwtService,
+                         UserDetailsService userDetailsService,
+                         SecurityEpochRegistry securityEpochs,
+                         TokenRevocationService tokenRevocations,
+                         @Value("${security.jwt.stateless:false}") boolean stateless) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.securityEpochs = securityEpochs;
+        this.tokenRevocations = tokenRevocations;
+        this.stateless = stateless;
     }
 
     @Override
@@ -47,16 +61,32 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             return;
         }
 
-        if (!jwtService.isValid(token)) {
+        Optional<VerifiedToken> verifiedToken = jwtService.verify(token);
+
+        if (verifiedToken.isEmpty()) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String email = jwtService.extractUsername(token).trim().toLowerCase();
+        VerifiedToken verified = verifiedToken.get();
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        if (verified.hasSecurityEpoch() && !securityEpochs.isCurrent(verified.userId(), verified.securityEpoch())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        if(!userDetails.isEnabled()) {
+        if (verified.jti() != null && tokenRevocations.isRevoked(verified.jti())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String email = verified.subject().trim().toLowerCase();
+
+        UserDetails userDetails = stateless && verified.hasSecurityEpoch()
+                ? statelessUserDetails(verified, email)
+                : userDetailsService.loadUserByUsername(email);
+
+        if(userDetails == null || !userDetails.isEnabled()) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -66,8 +96,26 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 null,
                 userDetails.getAuthorities()
         );
+        // Long-lived requests such as the task stream keep the token to notice a later revocation.
+        authentication.setDetails(verified);
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    // A current epoch means the user has not been disabled or changed role since the token was issued.
+    private static CustomUserDetails statelessUserDetails(VerifiedToken verified, String email) {
+        if (verified.roles().size() != 1) {
+            return null;
+        }
+
+        Role role;
+        try {
+            role = Role.valueOf(verified.roles().get(0));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        return new CustomUserDetails(verified.userId(), email, null, role, true);
+    }
+}
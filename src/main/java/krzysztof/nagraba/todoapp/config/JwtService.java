@@ -1,74 +1,145 @@
 package krzysztof.nagraba.todoapp.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class JwtService {
 
     private final SecretKey key;
     private final long ttlMinutes;
+    private final JwtParser parser;
+
+    // Verified claims keyed by SHA-256 of the token; every entry expires together with its token.
+    private final Cache<String, VerifiedToken> verifiedTokens;
 
     public JwtService(
             @Value("${security.jwt.secret}") String base64Secret,
-            @Value("${security.jwt.ttl-minutes:15}") long ttlMinutes
+            @Value("${security.jwt.ttl-minutes:15}") long ttlMinutes,
+            @Value("${security.jwt.cache.max-size:10000}") long cacheMaxSize,
+            MeterRegistry meterRegistry
     ) {
         byte[] keyBytes = Decoders.BASE64.decode(base64Secret);
         this.key = Keys.hmacShaKeyFor(keyBytes);
         this.ttlMinutes = ttlMinutes;
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(Expiry.creating((String digest, VerifiedToken token) ->
+                        Duration.between(Instant.now(), token.expiresAt())))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
     }
 
-    public String generateToken(String username, List<String> roles) {
+    public String generateToken(String username, List<String> roles, Long userId, long securityEpoch) {
         Instant now = Instant.now();
         Instant exp = now.plus(ttlMinutes, ChronoUnit.MINUTES);
 
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("roles", roles);
+        claims.put("epoch", securityEpoch);
+        if (userId != null) {
+            claims.put("uid", userId);
+        }
+
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(exp))
-                .claims(Map.of("roles", roles))
+                .claims(claims)
                 .signWith(key)
                 .compact();
     }
 
-    public String extractUsername(String token) {
-        return parseSignedClaims(token).getPayload().getSubject();
-    }
+    public Optional<VerifiedToken> verify(String token) {
+        String digest = TokenDigests.sha256Hex(token);
 
-    public boolean isValid(String token) {
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        VerifiedToken verified;
         try {
-            parseSignedClaims(token);
-            return true;
+            verified = toVerifiedToken(parser.parseSignedClaims(token).getPayload());
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return Optional.empty();
         }
+
+        if (verified.expiresAt() != null) {
+            verifiedTokens.put(digest, verified);
+        }
+        return Optional.of(verified);
     }
 
-    private Jws<Claims> parseSignedClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token);
+    public String extractUsername(String token) {
+        return verifyOrThrow(token).subject();
+    }
+
+    public boolean isValid(String token) {
+        return verify(token).isPresent();
     }
 
-    @SuppressWarnings("unchecked")
     public List<String> extractRoles(String token) {
-        Object roles = parseSignedClaims(token).getPayload().get("roles");
+        return verifyOrThrow(token).roles();
+    }
+
+    private VerifiedToken verifyOrThrow(String token) {
+        return verify(token).orElseThrow(() -> new JwtException("Invalid token."));
+    }
+
+    private static VerifiedToken toVerifiedToken(Claims claims) {
+        Date expiration = claims.getExpiration();
+
+        return new VerifiedToken(
+                claims.getSubject(),
+                rolesOf(claims),
+                longClaim(claims, "uid"),
+                longClaim(claims, "epoch"),
+                claims.getId(),
+                expiration == null ? null : expiration.toInstant()
+        );
+    }
+
+    private static Long longClaim(Claims claims, String name) {
+        Object value = claims.get(name);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return null;
+    }
+
+    private static List<String> rolesOf(Claims claims) {
+        Object roles = claims.get("roles");
         if (roles instanceof List<?> list) {
-            return (List<String>) list;
+            return list.stream().map(String::valueOf).toList();
         }
         return List.of();
     }
@@ -0,0 +1,72 @@
+package krzysztof.nagraba.todoapp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import krzysztof.nagraba.todoapp.exception.LoginThrottledException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles /auth/login per normalized email and per client address before any password hashing happens.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private static final int OVERFLOW_STRIPES = 1024;
+
+    private final TokenBucketLimiter byAccount;
+    private final TokenBucketLimiter byAddress;
+    private final long accountRetryAfterSeconds;
+    private final long addressRetryAfterSeconds;
+    private final Counter rejectedByAccount;
+    private final Counter rejectedByAddress;
+    private final Counter evicted;
+
+    public LoginRateLimiter(@Value("${security.login-throttle.account.capacity:5}") int accountCapacity,
+                            @Value("${security.login-throttle.account.refill-per-minute:5}") int accountRefillPerMinute,
+                            @Value("${security.login-throttle.address.capacity:20}") int addressCapacity,
+                            @Value("${security.login-throttle.address.refill-per-minute:20}") int addressRefillPerMinute,
+                            @Value("${security.login-throttle.max-keys:100000}") int maxKeys,
+                            MeterRegistry meterRegistry) {
+        this.byAccount = new TokenBucketLimiter(accountCapacity, accountRefillPerMinute, maxKeys, OVERFLOW_STRIPES, LoginRateLimiter::monotonicMillis);
+        this.byAddress = new TokenBucketLimiter(addressCapacity, addressRefillPerMinute, maxKeys, OVERFLOW_STRIPES, LoginRateLimiter::monotonicMillis);
+        this.accountRetryAfterSeconds = retryAfterSeconds(accountRefillPerMinute);
+        this.addressRetryAfterSeconds = retryAfterSeconds(addressRefillPerMinute);
+
+        this.rejectedByAccount = Counter.builder("security.login.throttled").tag("key", "account").register(meterRegistry);
+        this.rejectedByAddress = Counter.builder("security.login.throttled").tag("key", "address").register(meterRegistry);
+        this.evicted = Counter.builder("security.login.throttle.evicted").register(meterRegistry);
+        Gauge.builder("security.login.throttle.keys", byAccount, TokenBucketLimiter::trackedKeys).tag("key", "account").register(meterRegistry);
+        Gauge.builder("security.login.throttle.keys", byAddress, TokenBucketLimiter::trackedKeys).tag("key", "address").register(meterRegistry);
+        Gauge.builder("security.login.throttle.overflowed", byAccount, TokenBucketLimiter::overflowed).tag("key", "account").register(meterRegistry);
+        Gauge.builder("security.login.throttle.overflowed", byAddress, TokenBucketLimiter::overflowed).tag("key", "address").register(meterRegistry);
+    }
+
+    public void acquire(String email, String address) {
+        if (address != null && !byAddress.tryAcquire(address)) {
+            rejectedByAddress.increment();
+            throw new LoginThrottledException(addressRetryAfterSeconds);
+        }
+        if (!byAccount.tryAcquire(email.toLowerCase().trim())) {
+            rejectedByAccount.increment();
+            throw new LoginThrottledException(accountRetryAfterSeconds);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.login-throttle.eviction-ms:60000}")
+    public void evictIdle() {
+        evicted.increment(byAccount.evictIdle() + byAddress.evictIdle());
+    }
+
+    private static long retryAfterSeconds(int refillPerMinute) {
+        return Math.max(1, (long) Math.ceil(60.0 / Math.max(1, refillPerMinute)));
+    }
+
+    private static long monotonicMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
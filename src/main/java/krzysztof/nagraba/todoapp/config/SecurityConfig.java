@@ -1,40 +1,84 @@
 package krzysztof.nagraba.todoapp.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import krzysztof.nagraba.todoapp.service.TokenRevocationService;
 import krzysztof.nagraba.todoapp.service.UserDetailsService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+import java.util.Map;
+
 @EnableMethodSecurity
 @Configuration
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtService jwtService, UserDetailsService userDetailsService) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   JwtService jwtService,
+                                                   UserDetailsService userDetailsService,
+                                                   SecurityEpochRegistry securityEpochs,
+                                                   TokenRevocationService tokenRevocations,
+                                                   @Value("${security.jwt.stateless:false}") boolean stateless) throws Exception {
         http.csrf(
                 AbstractHttpConfigurer::disable)
                 .headers(headers -> headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth ->
-                        auth.requestMatchers("/auth/**").permitAll()
+                        auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                                .requestMatchers("/auth/**").permitAll()
                                 .requestMatchers("/h2-console/**").permitAll()
+                                .requestMatchers("/actuator/health").permitAll()
+                                .requestMatchers("/actuator/**").hasRole("ADMIN")
                                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                                 .anyRequest().authenticated())
-                .addFilterBefore(new JwtAuthFilter(jwtService, userDetailsService), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(new JwtAuthFilter(jwtService, userDetailsService, securityEpochs, tokenRevocations, stateless), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${security.password-hashing.threads:0}") int threads,
+            @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${security.password-hashing.timeout-ms:5000}") long timeoutMillis,
+            @Value("${security.password-hashing.retry-after-seconds:1}") long retryAfterSeconds,
+            @Value("${security.password-hashing.cost:0}") int cost,
+            @Value("${security.password-hashing.target-ms:250}") long targetMillis,
+            @Value("${security.password-hashing.min-cost:10}") int minCost,
+            @Value("${security.password-hashing.max-cost:14}") int maxCost,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry) {
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int bcryptCost = cost > 0 ? cost : BCryptCostCalibrator.pinnedCost(jdbcTemplate,
+                () -> BCryptCostCalibrator.calibrate(Duration.ofMillis(targetMillis), minCost, maxCost));
+
+        return new BoundedPasswordEncoder(
+                delegatingEncoder(new BCryptPasswordEncoder(bcryptCost)),
+                workers,
+                queueCapacity,
+                Duration.ofMillis(timeoutMillis),
+                retryAfterSeconds,
+                meterRegistry);
+    }
+
+    // Stored hashes without an {id} prefix are legacy BCrypt; they still match and get rehashed on the next login.
+    private static PasswordEncoder delegatingEncoder(BCryptPasswordEncoder bcrypt) {
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 }
@@ -0,0 +1,43 @@
+package krzysztof.nagraba.todoapp.config;
+
+import krzysztof.nagraba.todoapp.repository.UserRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of users.security_epoch. Only users whose epoch was ever bumped are kept,
+ * everyone else is implicitly at epoch 0. A token carrying an older epoch than the one
+ * recorded here has been invalidated by a disable, role change or password change.
+ * Bumps made on other nodes are picked up by {@link #load()}, which runs with every
+ * revocation compaction, or earlier by the first token that carries the newer epoch.
+ */
+@Component
+public class SecurityEpochRegistry {
+
+    private final UserRepository userRepository;
+    private final Map<Long, Long> epochs = new ConcurrentHashMap<>();
+
+    public SecurityEpochRegistry(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public void load() {
+        userRepository.findBumpedSecurityEpochs()
+                .forEach(view -> update(view.getId(), view.getSecurityEpoch()));
+    }
+
+    // Only signed tokens reach here, so a newer epoch comes from a bump this node has not reloaded yet.
+    public boolean isCurrent(Long userId, long epoch) {
+        long known = epochs.getOrDefault(userId, 0L);
+        if (epoch > known) {
+            update(userId, epoch);
+        }
+        return epoch >= known;
+    }
+
+    public void update(Long userId, long epoch) {
+        epochs.merge(userId, epoch, Math::max);
+    }
+}
@@ -0,0 +1,54 @@
+package krzysztof.nagraba.todoapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import krzysztof.nagraba.todoapp.service.TaskEventListener;
+import krzysztof.nagraba.todoapp.service.TaskStreamHub;
+import krzysztof.nagraba.todoapp.service.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class TaskStreamConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public TaskStreamHub taskStreamHub(
+            @Value("${tasks.stream.buffer-size:32}") int bufferSize,
+            @Value("${tasks.stream.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${tasks.stream.sender-threads:4}") int senderThreads,
+            @Value("${tasks.stream.send-timeout-ms:5000}") long sendTimeoutMillis,
+            @Value("${tasks.stream.max-stalled-sends:64}") int maxStalledSends,
+            SecurityEpochRegistry securityEpochs,
+            TokenRevocationService tokenRevocations,
+            MeterRegistry meterRegistry) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor sender = new ThreadPoolExecutor(
+                senderThreads, senderThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "task-stream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        return new TaskStreamHub(bufferSize, Duration.ofMillis(timeoutMillis), Duration.ofMillis(sendTimeoutMillis),
+                maxStalledSends, sender, securityEpochs, tokenRevocations, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tasks.stream.enabled", havingValue = "true", matchIfMissing = true)
+    public TaskEventListener taskEventListener(
+            DataSource dataSource,
+            TaskStreamHub taskStreamHub,
+            @Value("${tasks.stream.reconnect-delay-ms:5000}") long reconnectDelayMillis) {
+        return new TaskEventListener(dataSource, taskStreamHub, Duration.ofMillis(reconnectDelayMillis));
+    }
+}
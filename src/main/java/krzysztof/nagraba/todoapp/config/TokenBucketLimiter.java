@@ -0,0 +1,119 @@
+package krzysztof.nagraba.todoapp.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets keyed by string. Each bucket is a single {@link AtomicLong} packing the remaining
+ * milli-tokens (high 20 bits) and the last refill time in ms (low 44 bits), updated with CAS.
+ * At most {@code maxKeys} buckets are tracked; once full, further keys share a fixed set of
+ * overflow stripes, so memory stays bounded no matter how many keys an attacker generates.
+ */
+public class TokenBucketLimiter {
+
+    private static final int TIME_BITS = 44;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MILLI = 1000;
+
+    private final long capacityMilli;
+    private final long refillPerMinute;
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final long start;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong[] overflowStripes;
+    private final LongAdder overflowed = new LongAdder();
+
+    public TokenBucketLimiter(int capacity, int refillPerMinute, int maxKeys, int overflowStripes, LongSupplier clock) {
+        if (capacity < 1 || capacity > 1000) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 1000.");
+        }
+        this.capacityMilli = capacity * MILLI;
+        this.refillPerMinute = Math.max(1, refillPerMinute);
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        this.start = clock.getAsLong();
+        this.overflowStripes = new AtomicLong[overflowStripes];
+        for (int i = 0; i < overflowStripes; i++) {
+            this.overflowStripes[i] = new AtomicLong(pack(capacityMilli, 0));
+        }
+    }
+
+    public boolean tryAcquire(String key) {
+        long now = now();
+        AtomicLong bucket = bucketFor(key, now);
+
+        while (true) {
+            long state = bucket.get();
+            long last = state & TIME_MASK;
+            long added = refilled(last, now);
+            long tokens = (state >>> TIME_BITS) + added;
+
+            // Only advance the timestamp by the time actually converted into tokens, so frequent calls keep the remainder.
+            long refilledAt = last + added * 60 / refillPerMinute;
+            if (tokens >= capacityMilli) {
+                tokens = capacityMilli;
+                refilledAt = now;
+            }
+
+            if (tokens < MILLI) {
+                return false;
+            }
+
+            if (bucket.compareAndSet(state, pack(tokens - MILLI, refilledAt))) {
+                return true;
+            }
+        }
+    }
+
+    /** Removes buckets that have refilled completely; they are indistinguishable from new ones. */
+    public int evictIdle() {
+        long now = now();
+        int evicted = 0;
+        for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+            long state = entry.getValue().get();
+            long tokens = (state >>> TIME_BITS) + refilled(state & TIME_MASK, now);
+            if (tokens >= capacityMilli && buckets.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int trackedKeys() {
+        return buckets.size();
+    }
+
+    public long overflowed() {
+        return overflowed.sum();
+    }
+
+    private AtomicLong bucketFor(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            overflowed.increment();
+            return overflowStripes[Math.floorMod(key.hashCode(), overflowStripes.length)];
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(pack(capacityMilli, now)));
+    }
+
+    // Milli-tokens accrued between two timestamps: refillPerMinute * 1000 per 60 000 ms.
+    private long refilled(long from, long to) {
+        return Math.max(0, to - from) * refillPerMinute / 60;
+    }
+
+    private long now() {
+        return (clock.getAsLong() - start) & TIME_MASK;
+    }
+
+    private static long pack(long tokensMilli, long time) {
+        return (tokensMilli << TIME_BITS) | time;
+    }
+}
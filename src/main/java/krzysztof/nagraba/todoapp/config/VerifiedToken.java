@@ -0,0 +1,15 @@
+package krzysztof.nagraba.todoapp.config;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Claims of a token whose signature and expiry have been checked. {@code userId}, {@code securityEpoch}
+ * and {@code jti} are null for tokens issued before they were embedded.
+ */
+public record VerifiedToken(String subject, List<String> roles, Long userId, Long securityEpoch, String jti, Instant expiresAt) {
+
+    public boolean hasSecurityEpoch() {
+        return userId != null && securityEpoch != null;
+    }
+}
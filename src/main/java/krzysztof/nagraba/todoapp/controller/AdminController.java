@@ -1,11 +1,21 @@
 package krzysztof.nagraba.todoapp.controller;
 
+import krzysztof.nagraba.todoapp.config.CustomUserDetails;
+import krzysztof.nagraba.todoapp.config.ExportLimiter;
+import krzysztof.nagraba.todoapp.entity.TaskDataFormat;
 import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.dto.CursorPage;
+import krzysztof.nagraba.todoapp.entity.dto.SliceResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskFilter;
 import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskStatsResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskSummaryResponse;
 import krzysztof.nagraba.todoapp.entity.dto.UpdateRoleRequest;
 import krzysztof.nagraba.todoapp.entity.dto.UserResponse;
 import krzysztof.nagraba.todoapp.service.AuthService;
+import krzysztof.nagraba.todoapp.service.TaskExportService;
 import krzysztof.nagraba.todoapp.service.TaskService;
+import krzysztof.nagraba.todoapp.service.TaskStatsService;
 import krzysztof.nagraba.todoapp.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
@@ -14,7 +24,9 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/admin/users")
@@ -24,20 +36,63 @@ public class AdminController {
     private final TaskService taskService;
     private final AuthService authService;
     private final UserService userService;
+    private final TaskStatsService taskStatsService;
+    private final TaskExportService taskExportService;
+    private final ExportLimiter exportLimiter;
 
-    public AdminController(TaskService taskService, AuthService authService, UserService userService) {
+    public AdminController(TaskService taskService, AuthService authService, UserService userService, TaskStatsService taskStatsService,
+                           TaskExportService taskExportService, ExportLimiter exportLimiter) {
         this.taskService = taskService;
         this.authService = authService;
         this.userService = userService;
+        this.taskStatsService = taskStatsService;
+        this.taskExportService = taskExportService;
+        this.exportLimiter = exportLimiter;
     }
 
     //Task endpoints
     @GetMapping("/tasks")
     public ResponseEntity<Page<TaskResponse>> listTasks(
+            TaskFilter filter,
+            @PageableDefault(size = 10, sort = "createdDate", direction = Sort.Direction.DESC)
+            Pageable pageable) {
+        return ResponseEntity.ok(taskService.getAllTasks(filter, pageable));
+    }
+
+    @GetMapping("/tasks/slice")
+    public ResponseEntity<SliceResponse<TaskResponse>> listTasksSlice(
             @RequestParam(required = false) TaskStatus status,
+            @RequestParam(defaultValue = "false") boolean estimate,
             @PageableDefault(size = 10, sort = "createdDate", direction = Sort.Direction.DESC)
             Pageable pageable) {
-        return ResponseEntity.ok(taskService.getAllTasks(status, pageable));
+        return ResponseEntity.ok(taskService.getAllTasksSlice(status, pageable, estimate));
+    }
+
+    @GetMapping("/tasks/export")
+    public ResponseEntity<StreamingResponseBody> exportTasks(
+            @AuthenticationPrincipal CustomUserDetails customUserDetails,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(defaultValue = "NDJSON") TaskDataFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return TaskExports.response(format, gzip, exportLimiter.acquire(customUserDetails.getId()),
+                out -> taskExportService.exportAllTasks(userId, format, out));
+    }
+
+    @GetMapping("/tasks/cursor")
+    public ResponseEntity<CursorPage<TaskResponse>> listTasksByCursor(
+            @RequestParam(required = false) TaskStatus status,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(taskService.getAllTasksByCursor(status, after, size));
+    }
+
+    @GetMapping("/tasks/search")
+    public ResponseEntity<CursorPage<TaskResponse>> searchTasks(
+            @RequestParam String q,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(taskService.searchAllTasks(userId, q, after, size));
     }
 
     @GetMapping("/{userId}/tasks")
@@ -48,12 +103,37 @@ public class AdminController {
         return ResponseEntity.ok(taskService.getAllUserTasks(userId, status, pageable));
     }
 
+    @GetMapping("/{userId}/tasks/slice")
+    public ResponseEntity<SliceResponse<TaskResponse>> listTasksPerUserSlice(
+            @PathVariable Long userId,
+            @RequestParam(required = false) TaskStatus status,
+            @PageableDefault(size = 10, sort = "createdDate", direction = Sort.Direction.DESC) Pageable pageable) {
+        return ResponseEntity.ok(taskService.getAllUserTasksSlice(userId, status, pageable));
+    }
+
+    @GetMapping("/{userId}/tasks/summary")
+    public ResponseEntity<TaskSummaryResponse> getUserTaskSummary(@PathVariable Long userId) {
+        return ResponseEntity.ok(taskService.getUserTaskSummary(userId));
+    }
+
+    @GetMapping("/{userId}/tasks/stats")
+    public ResponseEntity<TaskStatsResponse> getUserTaskStats(@PathVariable Long userId) {
+        return ResponseEntity.ok(taskStatsService.getStats(userId));
+    }
+
     //User endpoints
     @GetMapping
     public ResponseEntity<Page<UserResponse>> listUsers(Pageable pageable) {
         return ResponseEntity.ok(userService.getAllUsers(pageable));
     }
 
+    @GetMapping("/slice")
+    public ResponseEntity<SliceResponse<UserResponse>> listUsersSlice(
+            @RequestParam(defaultValue = "false") boolean estimate,
+            Pageable pageable) {
+        return ResponseEntity.ok(userService.getAllUsersSlice(pageable, estimate));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserResponse> getUser(@PathVariable Long id){
         return ResponseEntity.ok(userService.getUserById(id));
@@ -71,6 +151,12 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
+    @PatchMapping("/{id}/revoke-sessions")
+    public ResponseEntity<Void> revokeSessions(@PathVariable Long id){
+        authService.revokeAllSessions(id);
+        return ResponseEntity.noContent().build();
+    }
+
     @PatchMapping("/{id}/role")
     public ResponseEntity<Void> updateUserRole(@PathVariable Long id, @Valid @RequestBody UpdateRoleRequest updateRoleRequest) {
         authService.updateUserRole(id, updateRoleRequest.getRole());
@@ -1,13 +1,17 @@
 package krzysztof.nagraba.todoapp.controller;
 
+import krzysztof.nagraba.todoapp.config.LoginRateLimiter;
 import krzysztof.nagraba.todoapp.entity.dto.LoginRequest;
+import krzysztof.nagraba.todoapp.entity.dto.RefreshRequest;
 import krzysztof.nagraba.todoapp.entity.dto.RegisterRequest;
 import krzysztof.nagraba.todoapp.entity.dto.TokenResponse;
 import krzysztof.nagraba.todoapp.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -16,9 +20,11 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthController {
 
     private final AuthService authService;
+    private final LoginRateLimiter loginRateLimiter;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, LoginRateLimiter loginRateLimiter) {
         this.authService = authService;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     @PostMapping("/register")
@@ -28,8 +34,23 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<TokenResponse> login(@RequestBody @Valid LoginRequest loginRequest) {
-        String token = authService.login(loginRequest);
-        return ResponseEntity.ok(new TokenResponse(token));
+    public ResponseEntity<TokenResponse> login(@RequestBody @Valid LoginRequest loginRequest, HttpServletRequest request) {
+        loginRateLimiter.acquire(loginRequest.getEmail(), request.getRemoteAddr());
+        return ResponseEntity.ok(authService.login(loginRequest));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                       @RequestBody(required = false) @Valid RefreshRequest refreshRequest) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring("Bearer ".length()).trim()
+                : "";
+        authService.logout(accessToken, refreshRequest == null ? null : refreshRequest.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<TokenResponse> refresh(@RequestBody @Valid RefreshRequest refreshRequest) {
+        return ResponseEntity.ok(authService.refresh(refreshRequest.getRefreshToken()));
     }
 }
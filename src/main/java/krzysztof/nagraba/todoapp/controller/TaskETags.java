@@ -0,0 +1,37 @@
+package krzysztof.nagraba.todoapp.controller;
+
+import krzysztof.nagraba.todoapp.exception.PreconditionFailedException;
+
+final class TaskETags {
+
+    private TaskETags() {}
+
+    // Strong: a task version identifies its representation byte for byte.
+    static String forTask(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Version required by an If-Match header, or null when there is no condition ({@code *} or absent).
+     * Only a single strong tag can match a task; anything else fails the precondition.
+     */
+    static Long requiredVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new PreconditionFailedException("If-Match must be a single strong ETag.");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match does not match the current ETag.");
+        }
+    }
+
+    // Weak: one revision covers every page, sort and filter of the user's listings.
+    static String forListing(long revision) {
+        return "W/\"" + revision + "\"";
+    }
+}
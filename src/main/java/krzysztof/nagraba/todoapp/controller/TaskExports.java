@@ -0,0 +1,50 @@
+package krzysztof.nagraba.todoapp.controller;
+
+import krzysztof.nagraba.todoapp.config.ExportLimiter;
+import krzysztof.nagraba.todoapp.entity.TaskDataFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response for a task export. The body runs on an async thread after headers are sent, so whatever
+ * it needs from the request has to be captured beforehand. The export permit is taken before the
+ * response starts and given back when the body ends.
+ */
+final class TaskExports {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private TaskExports() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> response(TaskDataFormat format, boolean gzip, ExportLimiter.Permit permit,
+                                                          StreamingResponseBody body) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("tasks." + format.getExtension())
+                        .build()
+                        .toString());
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(out -> {
+            try (permit) {
+                GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+                OutputStream buffered = new BufferedOutputStream(compressed != null ? compressed : out, BUFFER_SIZE);
+                body.writeTo(buffered);
+                buffered.flush();
+                if (compressed != null) {
+                    compressed.finish();
+                }
+            }
+        });
+    }
+}
@@ -1,42 +1,134 @@
 package krzysztof.nagraba.todoapp.controller;
 
+import krzysztof.nagraba.todoapp.entity.TaskDataFormat;
 import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.dto.BulkStatusUpdateDto;
+import krzysztof.nagraba.todoapp.entity.dto.BulkTaskResponse;
 import krzysztof.nagraba.todoapp.entity.dto.CreateTaskDto;
+import krzysztof.nagraba.todoapp.entity.dto.CursorPage;
+import krzysztof.nagraba.todoapp.entity.dto.DeletedCountResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskChangesResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskFilter;
 import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
 import krzysztof.nagraba.todoapp.entity.dto.TaskStatusUpdateDto;
+import krzysztof.nagraba.todoapp.entity.dto.TaskSummaryResponse;
 import krzysztof.nagraba.todoapp.entity.dto.UpdateTaskDto;
 import krzysztof.nagraba.todoapp.config.CustomUserDetails;
+import krzysztof.nagraba.todoapp.config.ExportLimiter;
+import krzysztof.nagraba.todoapp.config.VerifiedToken;
+import krzysztof.nagraba.todoapp.service.TaskChangeService;
+import krzysztof.nagraba.todoapp.service.TaskExportService;
+import krzysztof.nagraba.todoapp.service.TaskImportService;
+import krzysztof.nagraba.todoapp.service.TaskPurgeService;
 import krzysztof.nagraba.todoapp.service.TaskService;
+import krzysztof.nagraba.todoapp.service.TaskStreamHub;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/tasks")
 public class UserTaskController {
     private final TaskService taskService;
-    public UserTaskController(TaskService taskService) {
+    private final TaskChangeService taskChangeService;
+    private final TaskStreamHub taskStreamHub;
+    private final TaskExportService taskExportService;
+    private final TaskImportService taskImportService;
+    private final TaskPurgeService taskPurgeService;
+    private final ExportLimiter exportLimiter;
+    public UserTaskController(TaskService taskService, TaskChangeService taskChangeService, TaskStreamHub taskStreamHub,
+                              TaskExportService taskExportService, TaskImportService taskImportService, TaskPurgeService taskPurgeService,
+                              ExportLimiter exportLimiter) {
         this.taskService = taskService;
+        this.taskChangeService = taskChangeService;
+        this.taskStreamHub = taskStreamHub;
+        this.taskExportService = taskExportService;
+        this.taskImportService = taskImportService;
+        this.taskPurgeService = taskPurgeService;
+        this.exportLimiter = exportLimiter;
     }
 
+    // An unchanged poll costs one primary-key read of the user's revision and no listing query.
     @GetMapping
-    public ResponseEntity<Page<TaskResponse>> getMyTasks(@AuthenticationPrincipal CustomUserDetails customUserDetails, Pageable pageable) {
-        return ResponseEntity.ok().body(taskService.getMyTasks(customUserDetails.getId(), pageable));
+    public ResponseEntity<Page<TaskResponse>> getMyTasks(@AuthenticationPrincipal CustomUserDetails customUserDetails, TaskFilter filter, Pageable pageable, WebRequest request) {
+        String etag = TaskETags.forListing(taskService.getMyTasksRevision(customUserDetails.getId()));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(taskService.getMyTasks(customUserDetails.getId(), filter, pageable));
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<TaskResponse>> getMyTasksByCursor(
+            @AuthenticationPrincipal CustomUserDetails customUserDetails,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(taskService.getMyTasksByCursor(customUserDetails.getId(), after, size));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<TaskResponse>> searchMyTasks(
+            @AuthenticationPrincipal CustomUserDetails customUserDetails,
+            @RequestParam String q,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(taskService.searchMyTasks(customUserDetails.getId(), q, after, size));
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<TaskChangesResponse> getMyTaskChanges(
+            @AuthenticationPrincipal CustomUserDetails customUserDetails,
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(taskChangeService.getChanges(customUserDetails.getId(), since, limit));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMyTasks(@AuthenticationPrincipal CustomUserDetails customUserDetails,
+                                    Authentication authentication) {
+        return taskStreamHub.subscribe(customUserDetails.getId(), (VerifiedToken) authentication.getDetails());
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMyTasks(
+            @AuthenticationPrincipal CustomUserDetails customUserDetails,
+            @RequestParam(defaultValue = "NDJSON") TaskDataFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        Long userId = customUserDetails.getId();
+        return TaskExports.response(format, gzip, exportLimiter.acquire(userId),
+                out -> taskExportService.exportMyTasks(userId, format, out));
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<TaskSummaryResponse> getMyTaskSummary(@AuthenticationPrincipal CustomUserDetails customUserDetails) {
+        return ResponseEntity.ok(taskService.getMyTaskSummary(customUserDetails.getId()));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<TaskResponse> getMyTaskById(@PathVariable Long id,  @AuthenticationPrincipal CustomUserDetails customUserDetails) {
-        return ResponseEntity.ok(taskService.getMyTask(id, customUserDetails.getId()));
+    public ResponseEntity<TaskResponse> getMyTaskById(@PathVariable Long id,  @AuthenticationPrincipal CustomUserDetails customUserDetails, WebRequest request) {
+        String etag = TaskETags.forTask(taskService.getMyTaskVersion(id, customUserDetails.getId()));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(taskService.getMyTask(id, customUserDetails.getId()));
     }
 
     @PostMapping
     public ResponseEntity<TaskResponse> createMyTask(@Valid @RequestBody CreateTaskDto createTaskDto, @AuthenticationPrincipal CustomUserDetails customUserDetails) {
-        TaskResponse response = taskService.createMyTask(createTaskDto, customUserDetails.getId());
+        TaskResponse response = taskService.createMyTask(createTaskDto, customUserDetails.getId(), customUserDetails.getUsername());
 
         URI location = ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -46,16 +138,45 @@ public class UserTaskController {
         return ResponseEntity.created(location).body(response);
     }
 
+    // The body is read while the report streams back, so neither side is buffered whole.
+    @PostMapping("/import")
+    public ResponseEntity<StreamingResponseBody> importMyTasks(
+            @AuthenticationPrincipal CustomUserDetails customUserDetails,
+            @RequestParam(defaultValue = "NDJSON") TaskDataFormat format,
+            InputStream body) {
+        Long userId = customUserDetails.getId();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> taskImportService.importMyTasks(userId, format, body, out));
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<Void> updateMyTask(@PathVariable Long id, @Valid @RequestBody UpdateTaskDto updateTaskDto,  @AuthenticationPrincipal CustomUserDetails customUserDetails) {
-        taskService.updateMyTask(id, updateTaskDto, customUserDetails.getId());
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Void> updateMyTask(@PathVariable Long id, @Valid @RequestBody UpdateTaskDto updateTaskDto,  @AuthenticationPrincipal CustomUserDetails customUserDetails,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = TaskETags.requiredVersion(ifMatch);
+        if (expectedVersion == null) {
+            taskService.updateMyTask(id, updateTaskDto, customUserDetails.getId());
+            return ResponseEntity.noContent().build();
+        }
+        long version = taskService.updateMyTaskIfMatch(id, updateTaskDto, customUserDetails.getId(), expectedVersion);
+        return ResponseEntity.noContent().eTag(TaskETags.forTask(version)).build();
+    }
+
+    @PatchMapping("/status")
+    public ResponseEntity<BulkTaskResponse> patchStatuses(@Valid @RequestBody BulkStatusUpdateDto bulkStatusUpdateDto, @AuthenticationPrincipal CustomUserDetails customUserDetails) {
+        return ResponseEntity.ok(taskService.updateMyStatuses(bulkStatusUpdateDto.getIds(), bulkStatusUpdateDto.getStatus(), customUserDetails.getId()));
     }
 
     @PatchMapping("/{id}/status")
-    public ResponseEntity<Void> patchStatus(@PathVariable Long id, @Valid @RequestBody TaskStatusUpdateDto taskStatusPatchDto,  @AuthenticationPrincipal CustomUserDetails customUserDetails) {
-        taskService.updateMyStatus(id, taskStatusPatchDto.getStatus(), customUserDetails.getId());
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Void> patchStatus(@PathVariable Long id, @Valid @RequestBody TaskStatusUpdateDto taskStatusPatchDto,  @AuthenticationPrincipal CustomUserDetails customUserDetails,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = TaskETags.requiredVersion(ifMatch);
+        if (expectedVersion == null) {
+            taskService.updateMyStatus(id, taskStatusPatchDto.getStatus(), customUserDetails.getId());
+            return ResponseEntity.noContent().build();
+        }
+        long version = taskService.updateMyStatusIfMatch(id, taskStatusPatchDto.getStatus(), customUserDetails.getId(), expectedVersion);
+        return ResponseEntity.noContent().eTag(TaskETags.forTask(version)).build();
     }
 
     @DeleteMapping("/{id}")
@@ -64,9 +185,15 @@ public class UserTaskController {
         return ResponseEntity.noContent().build();
     }
 
-    @DeleteMapping
-    public ResponseEntity<Void> deleteAllByStatus(@RequestParam TaskStatus taskStatus, @AuthenticationPrincipal CustomUserDetails customUserDetails) {
-        taskService.deleteMyTasksByStatus(customUserDetails.getId(), taskStatus);
-        return ResponseEntity.noContent().build();
+    // The two bulk deletes exclude each other's parameter: a request with both matches neither and gets 400.
+    @DeleteMapping(params = {"ids", "!taskStatus"})
+    public ResponseEntity<BulkTaskResponse> deleteByIds(@RequestParam List<Long> ids, @AuthenticationPrincipal CustomUserDetails customUserDetails) {
+        return ResponseEntity.ok(taskService.deleteMyTasks(ids, customUserDetails.getId()));
+    }
+
+    @DeleteMapping(params = {"taskStatus", "!ids"})
+    public ResponseEntity<DeletedCountResponse> deleteAllByStatus(@RequestParam TaskStatus taskStatus, @AuthenticationPrincipal CustomUserDetails customUserDetails) {
+        long deleted = taskPurgeService.deleteMyTasksByStatus(customUserDetails.getId(), taskStatus);
+        return ResponseEntity.ok(new DeletedCountResponse(deleted));
     }
 }
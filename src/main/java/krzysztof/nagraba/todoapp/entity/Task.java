@@ -37,6 +37,11 @@ public class Task {
     @Column(nullable = false)
     private Importance importance;
 
+    @Version
+    @Setter(AccessLevel.NONE)
+    @Column(nullable = false)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User owner;
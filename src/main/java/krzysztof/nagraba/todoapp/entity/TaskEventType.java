@@ -0,0 +1,12 @@
+package krzysztof.nagraba.todoapp.entity;
+
+public enum TaskEventType {
+    CREATED,
+    IMPORTED,
+    UPDATED,
+    STATUS_CHANGED,
+    BULK_STATUS_CHANGED,
+    DELETED,
+    BULK_DELETED,
+    DELETED_BY_STATUS
+}
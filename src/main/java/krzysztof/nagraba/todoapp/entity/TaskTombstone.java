@@ -0,0 +1,32 @@
+package krzysztof.nagraba.todoapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marker of a deleted task for delta sync. Rows are written by the tasks delete trigger only.
+ */
+@Getter
+@NoArgsConstructor
+@Immutable
+@Entity
+@Table(name = "task_tombstones")
+public class TaskTombstone {
+
+    @Id
+    @Column(name = "task_id")
+    private Long taskId;
+
+    @Column(nullable = false, name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false, name = "change_seq")
+    private long changeSeq;
+
+    @Column(nullable = false, name = "deleted_at")
+    private LocalDateTime deletedAt;
+}
@@ -27,6 +27,9 @@ public class User {
 
     private boolean enabled;
 
+    @Column(nullable = false, name = "security_epoch")
+    private long securityEpoch;
+
     public User(String email, String passwordHash, Role role) {
         this.email = email;
         this.passwordHash = passwordHash;
@@ -49,4 +52,8 @@ public class User {
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
+
+    public void bumpSecurityEpoch() {
+        this.securityEpoch++;
+    }
 }
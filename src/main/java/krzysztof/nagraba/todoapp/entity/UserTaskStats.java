@@ -0,0 +1,32 @@
+package krzysztof.nagraba.todoapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-user task counters. Written only through the upserts in
+ * {@link krzysztof.nagraba.todoapp.repository.UserTaskStatsRepository}, hence read-only here.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "user_task_stats")
+public class UserTaskStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false, name = "todo_count")
+    private long todoCount;
+
+    @Column(nullable = false, name = "in_progress_count")
+    private long inProgressCount;
+
+    @Column(nullable = false, name = "done_count")
+    private long doneCount;
+
+    @Column(nullable = false)
+    private long revision;
+}
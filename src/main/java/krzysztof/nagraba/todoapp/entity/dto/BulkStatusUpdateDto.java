@@ -0,0 +1,19 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkStatusUpdateDto {
+    @NotEmpty
+    private List<@NotNull Long> ids;
+
+    @NotNull
+    private TaskStatus status;
+}
@@ -0,0 +1,16 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome per requested id: changed, or not found. Tasks of other users are reported as not found.
+ */
+@Getter
+@AllArgsConstructor
+public class BulkTaskResponse {
+    private List<Long> succeeded;
+    private List<Long> notFound;
+}
@@ -0,0 +1,10 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DeletedCountResponse {
+    private long deleted;
+}
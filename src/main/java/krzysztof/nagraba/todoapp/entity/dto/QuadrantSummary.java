@@ -0,0 +1,18 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import krzysztof.nagraba.todoapp.entity.Importance;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.Urgency;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class QuadrantSummary {
+    private Urgency urgency;
+    private Importance importance;
+    private long total;
+    private Map<TaskStatus, Long> byStatus;
+}
@@ -0,0 +1,11 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+
+@Getter
+public class RefreshRequest {
+
+    @NotBlank
+    private String refreshToken;
+}
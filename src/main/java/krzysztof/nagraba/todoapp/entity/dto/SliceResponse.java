@@ -0,0 +1,22 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class SliceResponse<T> {
+    private List<T> content;
+    private int page;
+    private int size;
+    private boolean hasNext;
+    // Approximate row count of the whole listing, null when not requested or not available for a filter.
+    private Long estimatedTotal;
+
+    public static <T> SliceResponse<T> of(Slice<T> slice, Long estimatedTotal) {
+        return new SliceResponse<>(slice.getContent(), slice.getNumber(), slice.getSize(), slice.hasNext(), estimatedTotal);
+    }
+}
@@ -0,0 +1,15 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class TaskChangesResponse {
+    private List<TaskResponse> upserts;
+    private List<Long> deletedIds;
+    private long cursor;
+    private boolean hasMore;
+}
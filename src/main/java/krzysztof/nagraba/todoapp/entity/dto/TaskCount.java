@@ -0,0 +1,16 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import krzysztof.nagraba.todoapp.entity.Importance;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.Urgency;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TaskCount {
+    private Urgency urgency;
+    private Importance importance;
+    private TaskStatus status;
+    private long count;
+}
@@ -0,0 +1,39 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a task listing ordered by {@code createdDate desc, id desc}.
+ * Clients only see the opaque, URL-safe encoded form.
+ */
+public record TaskCursor(LocalDateTime createdDate, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static TaskCursor of(TaskResponse task) {
+        return new TaskCursor(task.getCreatedDate(), task.getId());
+    }
+
+    public String encode() {
+        String raw = createdDate.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TaskCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            return new TaskCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import krzysztof.nagraba.todoapp.entity.TaskEventType;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+
+/**
+ * Change of one user's tasks pushed to their open streams. {@code taskId} is empty for
+ * events covering many tasks (imports and bulk changes); {@code status} is the new status, or the deleted one
+ * for deletes by status.
+ */
+public record TaskEvent(Long userId, TaskEventType type, Long taskId, TaskStatus status) {
+
+    public String toPayload() {
+        return userId + "," + type + "," + (taskId == null ? "" : taskId) + "," + (status == null ? "" : status);
+    }
+
+    public static TaskEvent fromPayload(String payload) {
+        String[] parts = payload.split(",", -1);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid task event payload.");
+        }
+        return new TaskEvent(
+                Long.valueOf(parts[0]),
+                TaskEventType.valueOf(parts[1]),
+                parts[2].isEmpty() ? null : Long.valueOf(parts[2]),
+                parts[3].isEmpty() ? null : TaskStatus.valueOf(parts[3]));
+    }
+}
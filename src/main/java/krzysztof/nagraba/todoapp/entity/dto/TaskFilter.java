@@ -0,0 +1,34 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import krzysztof.nagraba.todoapp.entity.Importance;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.Urgency;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional task listing criteria bound from query parameters. Unset fields do not filter;
+ * {@code createdFrom} is inclusive and {@code createdTo} exclusive.
+ */
+@NoArgsConstructor
+@Setter
+@Getter
+public class TaskFilter {
+    private TaskStatus status;
+    private Urgency urgency;
+    private Importance importance;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+
+    public boolean hasCriteria() {
+        return status != null || urgency != null || importance != null || createdFrom != null || createdTo != null;
+    }
+}
@@ -0,0 +1,39 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One line of the NDJSON import report: a rejected row, progress after a committed chunk,
+ * the final totals, or why the import stopped.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TaskImportProgress {
+    private String type;
+    private Long row;
+    private List<String> errors;
+    private Long imported;
+    private Long rejected;
+    private String message;
+
+    public static TaskImportProgress rowError(long row, List<String> errors) {
+        return new TaskImportProgress("error", row, errors, null, null, null);
+    }
+
+    public static TaskImportProgress progress(long imported, long rejected) {
+        return new TaskImportProgress("progress", null, null, imported, rejected, null);
+    }
+
+    public static TaskImportProgress done(long imported, long rejected) {
+        return new TaskImportProgress("done", null, null, imported, rejected, null);
+    }
+
+    public static TaskImportProgress failed(long imported, long rejected, String message) {
+        return new TaskImportProgress("failed", null, null, imported, rejected, message);
+    }
+}
@@ -0,0 +1,13 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TaskStatsResponse {
+    private long todo;
+    private long inProgress;
+    private long done;
+    private long total;
+}
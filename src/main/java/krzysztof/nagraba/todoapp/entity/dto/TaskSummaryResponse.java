@@ -0,0 +1,13 @@
+package krzysztof.nagraba.todoapp.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class TaskSummaryResponse {
+    private long total;
+    private List<QuadrantSummary> quadrants;
+}
@@ -0,0 +1,16 @@
+package krzysztof.nagraba.todoapp.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ExportLimitExceededException extends RuntimeException {
+
+    private final boolean nodeBusy;
+    private final long retryAfterSeconds;
+
+    public ExportLimitExceededException(boolean nodeBusy, long retryAfterSeconds) {
+        super(nodeBusy ? "Too many exports running, try again later." : "An export is already running, try again when it finishes.");
+        this.nodeBusy = nodeBusy;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package krzysztof.nagraba.todoapp.exception;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+    public InvalidRefreshTokenException() {
+        super("Invalid refresh token.");
+    }
+}
@@ -0,0 +1,14 @@
+package krzysztof.nagraba.todoapp.exception;
+
+import lombok.Getter;
+
+@Getter
+public class LoginThrottledException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(long retryAfterSeconds) {
+        super("Too many login attempts, try again later.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
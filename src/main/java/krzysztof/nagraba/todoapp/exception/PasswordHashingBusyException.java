@@ -0,0 +1,14 @@
+package krzysztof.nagraba.todoapp.exception;
+
+import lombok.Getter;
+
+@Getter
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(long retryAfterSeconds) {
+        super("Too many authentication requests, try again later.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
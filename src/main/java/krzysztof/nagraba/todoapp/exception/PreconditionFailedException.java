@@ -0,0 +1,12 @@
+package krzysztof.nagraba.todoapp.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(Long taskId) {
+        super("Task with id " + taskId + " has been modified.");
+    }
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
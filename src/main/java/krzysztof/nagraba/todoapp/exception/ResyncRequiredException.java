@@ -0,0 +1,8 @@
+package krzysztof.nagraba.todoapp.exception;
+
+public class ResyncRequiredException extends RuntimeException {
+
+    public ResyncRequiredException(long since) {
+        super("Changes since " + since + " are no longer available, a full resync is required.");
+    }
+}
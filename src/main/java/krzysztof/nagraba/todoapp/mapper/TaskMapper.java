@@ -25,6 +25,10 @@ public class TaskMapper {
     }
 
     public static TaskResponse toResponse(Task task) {
+        return toResponse(task, task.getOwner().getEmail());
+    }
+
+    public static TaskResponse toResponse(Task task, String ownerEmail) {
         return new TaskResponse(
                 task.getId(),
                 task.getTaskTitle(),
@@ -32,7 +36,7 @@ public class TaskMapper {
                 task.getCreatedDate(),
                 task.getUrgency(),
                 task.getImportance(),
-                task.getOwner().getEmail()
+                ownerEmail
         );
     }
 }
@@ -0,0 +1,46 @@
+package krzysztof.nagraba.todoapp.mapper;
+
+import krzysztof.nagraba.todoapp.entity.Importance;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.Urgency;
+import krzysztof.nagraba.todoapp.entity.dto.QuadrantSummary;
+import krzysztof.nagraba.todoapp.entity.dto.TaskCount;
+import krzysztof.nagraba.todoapp.entity.dto.TaskSummaryResponse;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class TaskSummaryMapper {
+
+    private TaskSummaryMapper() {}
+
+    // Every quadrant and status is present in the response, with zeros for combinations without tasks.
+    public static TaskSummaryResponse toResponse(List<TaskCount> counts) {
+        List<QuadrantSummary> quadrants = new ArrayList<>();
+        long total = 0;
+
+        for (Urgency urgency : Urgency.values()) {
+            for (Importance importance : Importance.values()) {
+                Map<TaskStatus, Long> byStatus = new EnumMap<>(TaskStatus.class);
+                for (TaskStatus status : TaskStatus.values()) {
+                    byStatus.put(status, 0L);
+                }
+
+                long quadrantTotal = 0;
+                for (TaskCount count : counts) {
+                    if (count.getUrgency() == urgency && count.getImportance() == importance) {
+                        byStatus.merge(count.getStatus(), count.getCount(), Long::sum);
+                        quadrantTotal += count.getCount();
+                    }
+                }
+
+                quadrants.add(new QuadrantSummary(urgency, importance, quadrantTotal, byStatus));
+                total += quadrantTotal;
+            }
+        }
+
+        return new TaskSummaryResponse(total, quadrants);
+    }
+}
@@ -0,0 +1,18 @@
+package krzysztof.nagraba.todoapp.repository;
+
+import krzysztof.nagraba.todoapp.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    List<RevokedToken> findAllByExpiresAtAfter(LocalDateTime now);
+
+    @Modifying
+    @Query("delete from RevokedToken r where r.expiresAt < :cutoff")
+    int deleteExpired(LocalDateTime cutoff);
+}
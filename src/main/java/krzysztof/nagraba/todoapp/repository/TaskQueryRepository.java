@@ -0,0 +1,76 @@
+package krzysztof.nagraba.todoapp.repository;
+
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.dto.CreateTaskDto;
+import krzysztof.nagraba.todoapp.entity.dto.TaskFilter;
+import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import krzysztof.nagraba.todoapp.entity.dto.UpdateTaskDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TaskQueryRepository {
+
+    /**
+     * Pages tasks matching every criterion set in {@code filter}, optionally limited to one owner.
+     */
+    Page<TaskResponse> findResponses(Long ownerId, TaskFilter filter, Pageable pageable);
+
+    /**
+     * Full-text search over task titles, newest first like the other listings, so a page can walk the
+     * (created_date, id) index and stop early instead of ranking and sorting every match. {@code tsQuery}
+     * must be a valid to_tsquery expression; rows strictly after ({@code afterCreatedDate}, {@code afterId})
+     * are returned when given.
+     */
+    List<TaskResponse> search(Long ownerId, String tsQuery, LocalDateTime afterCreatedDate, Long afterId, int limit);
+
+    /**
+     * Compare-and-set update in one statement: applies only while the task still has {@code expectedVersion}.
+     * Empty when the task is missing, owned by someone else or at another version.
+     */
+    Optional<ConditionalUpdate> updateIfVersion(Long taskId, Long ownerId, long expectedVersion, UpdateTaskDto update);
+
+    Optional<ConditionalUpdate> updateStatusIfVersion(Long taskId, Long ownerId, long expectedVersion, TaskStatus status);
+
+    /**
+     * Tasks of one owner written after change sequence {@code since}, in sequence order. Writers hold
+     * {@link #lockChanges} while drawing sequences, so a later call with the last returned sequence misses nothing.
+     */
+    List<ChangedTask> findChangedSince(Long ownerId, long since, int limit);
+
+    /**
+     * Takes the owner's change lock until the transaction ends. The task triggers take it before drawing a
+     * change sequence; taking it up front keeps it ahead of the user_task_stats row lock on every write path.
+     */
+    void lockChanges(Long ownerId);
+
+    /**
+     * Sets the status of the owner's tasks among {@code ids} in one statement. Returns each changed task
+     * with its status before the update; ids that are missing or owned by someone else are absent.
+     */
+    List<AffectedTask> updateStatusByIds(Long ownerId, Collection<Long> ids, TaskStatus status);
+
+    /**
+     * Deletes the owner's tasks among {@code ids} in one statement. Returns each deleted task with its status.
+     */
+    List<AffectedTask> deleteByIds(Long ownerId, Collection<Long> ids);
+
+    /**
+     * Bulk-inserts new tasks for one owner with a single COPY, applying the same defaults as a created task.
+     * Returns the number of rows written.
+     */
+    long copyTasks(Long ownerId, List<CreateTaskDto> tasks);
+
+    record ChangedTask(TaskResponse task, long changeSeq) {
+    }
+
+    record AffectedTask(Long id, TaskStatus previousStatus) {
+    }
+
+    record ConditionalUpdate(TaskStatus previousStatus, long version) {
+    }
+}
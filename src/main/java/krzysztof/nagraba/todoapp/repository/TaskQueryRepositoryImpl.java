@@ -0,0 +1,290 @@
+package krzysztof.nagraba.todoapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import krzysztof.nagraba.todoapp.entity.Importance;
+import krzysztof.nagraba.todoapp.entity.Task;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.Urgency;
+import krzysztof.nagraba.todoapp.entity.User;
+import krzysztof.nagraba.todoapp.entity.dto.CreateTaskDto;
+import krzysztof.nagraba.todoapp.entity.dto.TaskFilter;
+import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import krzysztof.nagraba.todoapp.entity.dto.UpdateTaskDto;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+class TaskQueryRepositoryImpl implements TaskQueryRepository {
+
+    private final EntityManager entityManager;
+
+    TaskQueryRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<TaskResponse> findResponses(Long ownerId, TaskFilter filter, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<TaskResponse> query = cb.createQuery(TaskResponse.class);
+        Root<Task> task = query.from(Task.class);
+        Join<Task, User> owner = task.join("owner");
+        query.select(cb.construct(TaskResponse.class,
+                        task.get("id"),
+                        task.get("taskTitle"),
+                        task.get("status"),
+                        task.get("createdDate"),
+                        task.get("urgency"),
+                        task.get("importance"),
+                        owner.get("email")))
+                .where(predicates(cb, task, ownerId, filter))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), task, cb));
+
+        List<TaskResponse> content = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(cb, ownerId, filter));
+    }
+
+    @Override
+    public List<TaskResponse> search(Long ownerId, String tsQuery, LocalDateTime afterCreatedDate, Long afterId, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email
+                from tasks t
+                join users u on u.id = t.user_id
+                cross join to_tsquery('simple', :query) as q(query)
+                where t.title_search @@ q.query
+                """);
+        if (ownerId != null) {
+            sql.append(" and t.user_id = :ownerId");
+        }
+        if (afterCreatedDate != null) {
+            sql.append(" and (t.created_date, t.id) < (:afterCreatedDate, :afterId)");
+        }
+        sql.append(" order by t.created_date desc, t.id desc limit :limit");
+
+        Query query = entityManager.createNativeQuery(sql.toString())
+                .setParameter("query", tsQuery)
+                .setParameter("limit", limit);
+        if (ownerId != null) {
+            query.setParameter("ownerId", ownerId);
+        }
+        if (afterCreatedDate != null) {
+            query.setParameter("afterCreatedDate", afterCreatedDate);
+            query.setParameter("afterId", afterId);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        return rows.stream().map(TaskQueryRepositoryImpl::toResponse).toList();
+    }
+
+    @Override
+    public List<ChangedTask> findChangedSince(Long ownerId, long since, int limit) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                        select t.id, t.task_title, t.status, t.created_date, t.urgency, t.importance, u.email,
+                               t.change_seq
+                        from tasks t
+                        join users u on u.id = t.user_id
+                        where t.user_id = :ownerId and t.change_seq > :since
+                        order by t.change_seq
+                        limit :limit
+                        """)
+                .setParameter("ownerId", ownerId)
+                .setParameter("since", since)
+                .setParameter("limit", limit)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new ChangedTask(toResponse(row), ((Number) row[7]).longValue()))
+                .toList();
+    }
+
+    @Override
+    public void lockChanges(Long ownerId) {
+        entityManager.createNativeQuery("select 1 from pg_advisory_xact_lock(:ownerId)")
+                .setParameter("ownerId", ownerId)
+                .getSingleResult();
+    }
+
+    // The version predicate is rechecked against the latest committed row when a concurrent update wins,
+    // so at most one writer per version succeeds and no lock is held beyond the statement itself.
+    @Override
+    public Optional<ConditionalUpdate> updateIfVersion(Long taskId, Long ownerId, long expectedVersion, UpdateTaskDto update) {
+        Query query = entityManager.createNativeQuery("""
+                        update tasks t
+                        set task_title = :title, status = :status, urgency = :urgency, importance = :importance,
+                            version = t.version + 1
+                        from (select status from tasks where id = :taskId) previous
+                        where t.id = :taskId and t.user_id = :ownerId and t.version = :expectedVersion
+                        returning previous.status, t.version
+                        """)
+                .setParameter("title", update.getTaskTitle())
+                .setParameter("status", update.getStatus().name())
+                .setParameter("urgency", update.getUrgency().name())
+                .setParameter("importance", update.getImportance().name());
+        return conditionalUpdate(query, taskId, ownerId, expectedVersion);
+    }
+
+    @Override
+    public Optional<ConditionalUpdate> updateStatusIfVersion(Long taskId, Long ownerId, long expectedVersion, TaskStatus status) {
+        Query query = entityManager.createNativeQuery("""
+                        update tasks t
+                        set status = :status, version = t.version + 1
+                        from (select status from tasks where id = :taskId) previous
+                        where t.id = :taskId and t.user_id = :ownerId and t.version = :expectedVersion
+                        returning previous.status, t.version
+                        """)
+                .setParameter("status", status.name());
+        return conditionalUpdate(query, taskId, ownerId, expectedVersion);
+    }
+
+    // The CTE locks the owner's matching rows first, so the reported previous status is the one actually replaced.
+    @Override
+    public List<AffectedTask> updateStatusByIds(Long ownerId, Collection<Long> ids, TaskStatus status) {
+        Query query = entityManager.createNativeQuery("""
+                        with previous as (
+                            select id, status from tasks where id = any(:ids) and user_id = :ownerId for update
+                        )
+                        update tasks t
+                        set status = :status, version = t.version + 1
+                        from previous
+                        where t.id = previous.id
+                        returning t.id, previous.status
+                        """)
+                .setParameter("status", status.name());
+        return affectedTasks(query, ownerId, ids);
+    }
+
+    @Override
+    public List<AffectedTask> deleteByIds(Long ownerId, Collection<Long> ids) {
+        Query query = entityManager.createNativeQuery("""
+                delete from tasks
+                where id = any(:ids) and user_id = :ownerId
+                returning id, status
+                """);
+        return affectedTasks(query, ownerId, ids);
+    }
+
+    // Ids travel as one array parameter, so every list size shares a single statement and plan.
+    private static List<AffectedTask> affectedTasks(Query query, Long ownerId, Collection<Long> ids) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query
+                .setParameter("ids", ids.toArray(new Long[0]))
+                .setParameter("ownerId", ownerId)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new AffectedTask(((Number) row[0]).longValue(), TaskStatus.valueOf((String) row[1])))
+                .toList();
+    }
+
+    // COPY skips per-row statement parsing and round trips; ids still come from the tasks sequence.
+    @Override
+    public long copyTasks(Long ownerId, List<CreateTaskDto> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        String createdDate = LocalDateTime.now().toString();
+        StringBuilder data = new StringBuilder(tasks.size() * 96);
+        for (CreateTaskDto task : tasks) {
+            data.append('"').append(task.getTaskTitle().replace("\"", "\"\"")).append('"')
+                    .append(',').append(TaskStatus.TODO)
+                    .append(',').append(createdDate)
+                    .append(',').append(task.getUrgency() != null ? task.getUrgency() : Urgency.NOT_URGENT)
+                    .append(',').append(task.getImportance() != null ? task.getImportance() : Importance.NOT_IMPORTANT)
+                    .append(',').append(ownerId)
+                    .append('\n');
+        }
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn("""
+                        copy tasks (task_title, status, created_date, urgency, importance, user_id)
+                        from stdin with (format csv)
+                        """, new StringReader(data.toString()));
+            } catch (IOException e) {
+                throw new SQLException("COPY into tasks failed", e);
+            }
+        });
+    }
+
+    private static Optional<ConditionalUpdate> conditionalUpdate(Query query, Long taskId, Long ownerId, long expectedVersion) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query
+                .setParameter("taskId", taskId)
+                .setParameter("ownerId", ownerId)
+                .setParameter("expectedVersion", expectedVersion)
+                .getResultList();
+        return rows.stream()
+                .findFirst()
+                .map(row -> new ConditionalUpdate(TaskStatus.valueOf((String) row[0]), ((Number) row[1]).longValue()));
+    }
+
+    private static TaskResponse toResponse(Object[] row) {
+        return new TaskResponse(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                TaskStatus.valueOf((String) row[2]),
+                toLocalDateTime(row[3]),
+                Urgency.valueOf((String) row[4]),
+                Importance.valueOf((String) row[5]),
+                (String) row[6]);
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private long count(CriteriaBuilder cb, Long ownerId, TaskFilter filter) {
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Task> task = query.from(Task.class);
+        query.select(cb.count(task)).where(predicates(cb, task, ownerId, filter));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // Every criterion is a plain equality or range on a tasks column, so the planner can pick
+    // a composite index whose leading columns match the combination actually sent.
+    private static Predicate[] predicates(CriteriaBuilder cb, Root<Task> task, Long ownerId, TaskFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (ownerId != null) {
+            predicates.add(cb.equal(task.get("owner").get("id"), ownerId));
+        }
+        if (filter.getStatus() != null) {
+            predicates.add(cb.equal(task.get("status"), filter.getStatus()));
+        }
+        if (filter.getUrgency() != null) {
+            predicates.add(cb.equal(task.get("urgency"), filter.getUrgency()));
+        }
+        if (filter.getImportance() != null) {
+            predicates.add(cb.equal(task.get("importance"), filter.getImportance()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(task.get("createdDate"), filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            predicates.add(cb.lessThan(task.get("createdDate"), filter.getCreatedTo()));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+}
@@ -1,25 +1,128 @@
 package krzysztof.nagraba.todoapp.repository;
 
+import jakarta.persistence.QueryHint;
 import krzysztof.nagraba.todoapp.entity.Task;
 import krzysztof.nagraba.todoapp.entity.TaskStatus;
-import krzysztof.nagraba.todoapp.entity.User;
+import krzysztof.nagraba.todoapp.entity.dto.TaskCount;
+import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface TaskRepository extends JpaRepository<Task,Long> {
-    Page<Task> findByStatus(TaskStatus status, Pageable pageable);
+public interface TaskRepository extends JpaRepository<Task,Long>, TaskQueryRepository {
 
-    Page<Task> findByOwner(User user, Pageable pageable);
+    // Projections below join the owner once and build TaskResponse directly, no managed entities.
+    String SELECT_RESPONSE = "select new krzysztof.nagraba.todoapp.entity.dto.TaskResponse("
+            + "t.id, t.taskTitle, t.status, t.createdDate, t.urgency, t.importance, o.email) "
+            + "from Task t join t.owner o";
+
+    @Query(value = SELECT_RESPONSE,
+            countQuery = "select count(t) from Task t")
+    Page<TaskResponse> findAllResponses(Pageable pageable);
+
+    @Query(value = SELECT_RESPONSE + " where o.id = :ownerId",
+            countQuery = "select count(t) from Task t where t.owner.id = :ownerId")
+    Page<TaskResponse> findResponsesByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    @Query(value = SELECT_RESPONSE + " where o.id = :ownerId and t.status = :status",
+            countQuery = "select count(t) from Task t where t.owner.id = :ownerId and t.status = :status")
+    Page<TaskResponse> findResponsesByOwnerIdAndStatus(@Param("ownerId") Long ownerId,
+                                                       @Param("status") TaskStatus status,
+                                                       Pageable pageable);
+
+    // Slice variants fetch one extra row instead of running a count query.
+    @Query(SELECT_RESPONSE)
+    Slice<TaskResponse> findAllResponsesAsSlice(Pageable pageable);
+
+    @Query(SELECT_RESPONSE + " where t.status = :status")
+    Slice<TaskResponse> findResponsesByStatusAsSlice(@Param("status") TaskStatus status, Pageable pageable);
+
+    @Query(SELECT_RESPONSE + " where o.id = :ownerId")
+    Slice<TaskResponse> findResponsesByOwnerIdAsSlice(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    @Query(SELECT_RESPONSE + " where o.id = :ownerId and t.status = :status")
+    Slice<TaskResponse> findResponsesByOwnerIdAndStatusAsSlice(@Param("ownerId") Long ownerId,
+                                                               @Param("status") TaskStatus status,
+                                                               Pageable pageable);
+
+    @Query("select new krzysztof.nagraba.todoapp.entity.dto.TaskCount(t.urgency, t.importance, t.status, count(t)) "
+            + "from Task t where t.owner.id = :ownerId group by t.urgency, t.importance, t.status")
+    List<TaskCount> countByQuadrantAndStatus(@Param("ownerId") Long ownerId);
+
+    @Query(value = "select cast(reltuples as bigint) from pg_class where oid = to_regclass('tasks')", nativeQuery = true)
+    long estimateRowCount();
+
+    // Keyset pagination: rows strictly after (createdDate, id) in "createdDate desc, id desc" order.
+    String KEYSET_ORDER = " order by t.createdDate desc, t.id desc";
+    String AFTER_CURSOR = "(t.createdDate, t.id) < (:createdDate, :id)";
+
+    @Query(SELECT_RESPONSE + KEYSET_ORDER)
+    List<TaskResponse> findFirstResponses(Limit limit);
+
+    @Query(SELECT_RESPONSE + " where " + AFTER_CURSOR + KEYSET_ORDER)
+    List<TaskResponse> findResponsesAfter(@Param("createdDate") LocalDateTime createdDate,
+                                          @Param("id") Long id,
+                                          Limit limit);
+
+    @Query(SELECT_RESPONSE + " where t.status = :status" + KEYSET_ORDER)
+    List<TaskResponse> findFirstResponsesByStatus(@Param("status") TaskStatus status, Limit limit);
+
+    @Query(SELECT_RESPONSE + " where t.status = :status and " + AFTER_CURSOR + KEYSET_ORDER)
+    List<TaskResponse> findResponsesByStatusAfter(@Param("status") TaskStatus status,
+                                                  @Param("createdDate") LocalDateTime createdDate,
+                                                  @Param("id") Long id,
+                                                  Limit limit);
+
+    @Query(SELECT_RESPONSE + " where o.id = :ownerId" + KEYSET_ORDER)
+    List<TaskResponse> findFirstResponsesByOwnerId(@Param("ownerId") Long ownerId, Limit limit);
+
+    @Query(SELECT_RESPONSE + " where o.id = :ownerId and " + AFTER_CURSOR + KEYSET_ORDER)
+    List<TaskResponse> findResponsesByOwnerIdAfter(@Param("ownerId") Long ownerId,
+                                                   @Param("createdDate") LocalDateTime createdDate,
+                                                   @Param("id") Long id,
+                                                   Limit limit);
+
+    @Query(SELECT_RESPONSE + " where t.id = :taskId and o.id = :ownerId")
+    Optional<TaskResponse> findResponseByIdAndOwnerId(@Param("taskId") Long taskId, @Param("ownerId") Long ownerId);
+
+    @Query("select t.version from Task t where t.id = :taskId and t.owner.id = :ownerId")
+    Optional<Long> findVersionByIdAndOwnerId(@Param("taskId") Long taskId, @Param("ownerId") Long ownerId);
 
     Optional<Task> findByIdAndOwnerId(Long taskId, Long userId);
 
-    Page <Task> findByOwnerAndStatus(User user, TaskStatus taskStatus, Pageable pageable);
+    // At most :limit rows per statement, so each call holds its row locks only briefly; repeat until it returns less.
+    // The outer predicate is rechecked on rows changed after the subquery picked them, so a task moved to another
+    // status in the meantime is kept and the returned count matches the status the counters are adjusted for.
+    @Modifying
+    @Query(value = """
+            delete from tasks
+            where id in (select id from tasks where user_id = :ownerId and status = :status limit :limit)
+              and user_id = :ownerId and status = :status
+            """, nativeQuery = true)
+    int deleteChunkByOwnerIdAndStatus(@Param("ownerId") Long ownerId, @Param("status") String status, @Param("limit") int limit);
+
+    String EXPORT_FETCH_SIZE = "1000";
 
-    void deleteAllByOwnerAndStatus(User owner, TaskStatus taskStatus);
+    // Forward-only cursor read in fetch-size batches inside the caller's transaction; the stream must be closed.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(SELECT_RESPONSE + KEYSET_ORDER)
+    Stream<TaskResponse> streamAllResponses();
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(SELECT_RESPONSE + " where o.id = :ownerId" + KEYSET_ORDER)
+    Stream<TaskResponse> streamResponsesByOwnerId(@Param("ownerId") Long ownerId);
 }
@@ -0,0 +1,35 @@
+package krzysztof.nagraba.todoapp.repository;
+
+import krzysztof.nagraba.todoapp.entity.TaskTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstone, Long> {
+
+    @Query(value = """
+            select * from task_tombstones
+            where user_id = :userId and change_seq > :since
+            order by change_seq
+            limit :limit
+            """, nativeQuery = true)
+    List<TaskTombstone> findDeletedSince(@Param("userId") Long userId, @Param("since") long since, @Param("limit") int limit);
+
+    @Query(value = "select pruned_through from task_sync_state where id = 1", nativeQuery = true)
+    long findPrunedThrough();
+
+    @Modifying
+    @Query(value = """
+            with pruned as (
+                delete from task_tombstones where deleted_at < :cutoff returning change_seq
+            )
+            update task_sync_state
+            set pruned_through = greatest(pruned_through, coalesce((select max(change_seq) from pruned), 0))
+            where id = 1
+            """, nativeQuery = true)
+    void pruneOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,11 +1,28 @@
 package krzysztof.nagraba.todoapp.repository;
 
 import krzysztof.nagraba.todoapp.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    Slice<User> findAllBy(Pageable pageable);
+
+    @Query(value = "select cast(reltuples as bigint) from pg_class where oid = to_regclass('users')", nativeQuery = true)
+    long estimateRowCount();
+
+    @Query("select u.id as id, u.securityEpoch as securityEpoch from User u where u.securityEpoch > 0")
+    List<SecurityEpochView> findBumpedSecurityEpochs();
+
+    interface SecurityEpochView {
+        Long getId();
+        long getSecurityEpoch();
+    }
 }
@@ -0,0 +1,66 @@
+package krzysztof.nagraba.todoapp.repository;
+
+import krzysztof.nagraba.todoapp.entity.UserTaskStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface UserTaskStatsRepository extends JpaRepository<UserTaskStats, Long> {
+
+    // Every task write goes through here, so it also advances the user's listing revision.
+    @Modifying
+    @Query(value = """
+            insert into user_task_stats (user_id, todo_count, in_progress_count, done_count, revision)
+            values (:userId, :todo, :inProgress, :done, 1)
+            on conflict (user_id) do update set
+                todo_count = user_task_stats.todo_count + excluded.todo_count,
+                in_progress_count = user_task_stats.in_progress_count + excluded.in_progress_count,
+                done_count = user_task_stats.done_count + excluded.done_count,
+                revision = user_task_stats.revision + 1
+            """, nativeQuery = true)
+    void addCounts(@Param("userId") Long userId,
+                   @Param("todo") long todo,
+                   @Param("inProgress") long inProgress,
+                   @Param("done") long done);
+
+    @Query("select s.revision from UserTaskStats s where s.userId = :userId")
+    Optional<Long> findRevisionByUserId(@Param("userId") Long userId);
+
+    // Users whose stored counters differ from the tasks table. A hint only: writers may be in flight.
+    @Query(value = """
+            select coalesce(a.user_id, s.user_id)
+            from (select user_id,
+                         count(*) filter (where status = 'TODO') as todo_count,
+                         count(*) filter (where status = 'IN_PROGRESS') as in_progress_count,
+                         count(*) filter (where status = 'DONE') as done_count
+                  from tasks
+                  group by user_id) a
+            full join user_task_stats s on s.user_id = a.user_id
+            where (coalesce(a.todo_count, 0), coalesce(a.in_progress_count, 0), coalesce(a.done_count, 0))
+                  is distinct from (coalesce(s.todo_count, 0), coalesce(s.in_progress_count, 0), coalesce(s.done_count, 0))
+            """, nativeQuery = true)
+    List<Long> findDriftedUserIds();
+
+    @Query(value = "select user_id from user_task_stats where user_id = :userId for update", nativeQuery = true)
+    List<Long> lockByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = """
+            insert into user_task_stats (user_id, todo_count, in_progress_count, done_count)
+            select :userId,
+                   count(*) filter (where status = 'TODO'),
+                   count(*) filter (where status = 'IN_PROGRESS'),
+                   count(*) filter (where status = 'DONE')
+            from tasks
+            where user_id = :userId
+            on conflict (user_id) do update set
+                todo_count = excluded.todo_count,
+                in_progress_count = excluded.in_progress_count,
+                done_count = excluded.done_count
+            """, nativeQuery = true)
+    void recount(@Param("userId") Long userId);
+}
@@ -1,10 +1,12 @@
 package krzysztof.nagraba.todoapp.service;
 
 import krzysztof.nagraba.todoapp.config.JwtService;
+import krzysztof.nagraba.todoapp.config.SecurityEpochRegistry;
 import krzysztof.nagraba.todoapp.entity.Role;
 import krzysztof.nagraba.todoapp.entity.User;
 import krzysztof.nagraba.todoapp.entity.dto.LoginRequest;
 import krzysztof.nagraba.todoapp.entity.dto.RegisterRequest;
+import krzysztof.nagraba.todoapp.entity.dto.TokenResponse;
 import krzysztof.nagraba.todoapp.exception.EmailAlreadyExistsException;
 import krzysztof.nagraba.todoapp.exception.UserNotFoundException;
 import krzysztof.nagraba.todoapp.repository.UserRepository;
@@ -19,11 +21,19 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final SecurityEpochRegistry securityEpochs;
+    private final UserDetailsService userDetailsService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService) {
+    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService, SecurityEpochRegistry securityEpochs, UserDetailsService userDetailsService, RefreshTokenService refreshTokenService, TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
+        this.securityEpochs = securityEpochs;
+        this.userDetailsService = userDetailsService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     public void register(RegisterRequest registerRequest) {
@@ -38,7 +48,7 @@ public class AuthService {
         userRepository.save(new User(normalizedEmail, passwordHash, Role.USER));
     }
 
-    public String login(LoginRequest loginRequest) {
+    public TokenResponse login(LoginRequest loginRequest) {
         String normalizedEmail = loginRequest.getEmail().toLowerCase().trim();
 
         User user = userRepository.findByEmail(normalizedEmail).orElseThrow(() -> new IllegalArgumentException("Invalid email!"));
@@ -49,22 +59,63 @@ public class AuthService {
             throw new IllegalArgumentException("Invalid password!");
         }
 
+        if (passwordEncoder.upgradeEncoding(user.getPasswordHash())) {
+            user.setPasswordHash(passwordEncoder.encode(loginRequest.getPassword()));
+            userRepository.save(user);
+            userDetailsService.evict(user.getEmail());
+        }
+
         String role = user.getRole().name();
 
-        return jwtService.generateToken(loginRequest.getEmail(), List.of(role));
+        String token = jwtService.generateToken(loginRequest.getEmail(), List.of(role), user.getId(), user.getSecurityEpoch());
+
+        return new TokenResponse(token, refreshTokenService.issue(user));
+    }
+
+    public TokenResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = rotation.user();
+
+        String token = jwtService.generateToken(user.getEmail(), List.of(user.getRole().name()), user.getId(), user.getSecurityEpoch());
+
+        return new TokenResponse(token, rotation.refreshToken());
+    }
+
+    public void logout(String accessToken, String refreshToken) {
+        jwtService.verify(accessToken)
+                .filter(token -> token.jti() != null)
+                .ifPresent(token -> tokenRevocationService.revoke(token.jti(), token.expiresAt()));
 
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
+        }
+    }
+
+    // Bumping the epoch invalidates every access token already issued to the user.
+    public void revokeAllSessions(Long id) {
+        User user = userRepository.findById(id).orElseThrow(() -> new UserNotFoundException(id));
+        user.bumpSecurityEpoch();
+        userRepository.save(user);
+        securityEpochs.update(user.getId(), user.getSecurityEpoch());
+        userDetailsService.evict(user.getEmail());
+        refreshTokenService.revokeAll(user.getId());
     }
 
     public void disableUser(Long id) {
         User user = userRepository.findById(id).orElseThrow(() -> new UserNotFoundException(id));
         user.setEnabled(false);
+        user.bumpSecurityEpoch();
         userRepository.save(user);
+        securityEpochs.update(user.getId(), user.getSecurityEpoch());
+        userDetailsService.evict(user.getEmail());
+        refreshTokenService.revokeAll(user.getId());
     }
 
     public void enableUser(Long id) {
         User user = userRepository.findById(id).orElseThrow(() -> new UserNotFoundException(id));
         user.setEnabled(true);
         userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
     }
 
     public void changePassword(Long id, String currentPassword, String newPassword) {
@@ -75,14 +126,21 @@ public class AuthService {
         }
 
         user.setPasswordHash(passwordEncoder.encode(newPassword));
+        user.bumpSecurityEpoch();
         userRepository.save(user);
+        securityEpochs.update(user.getId(), user.getSecurityEpoch());
+        userDetailsService.evict(user.getEmail());
+        refreshTokenService.revokeAll(user.getId());
     }
 
     public void updateUserRole(Long id, Role role) {
         User user = userRepository.findById(id).orElseThrow(() -> new UserNotFoundException(id));
 
         user.setRole(role);
+        user.bumpSecurityEpoch();
         userRepository.save(user);
+        securityEpochs.update(user.getId(), user.getSecurityEpoch());
+        userDetailsService.evict(user.getEmail());
     }
 
 }
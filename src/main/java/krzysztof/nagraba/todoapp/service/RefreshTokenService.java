@@ -0,0 +1,105 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.config.TokenDigests;
+import krzysztof.nagraba.todoapp.entity.RefreshToken;
+import krzysztof.nagraba.todoapp.entity.User;
+import krzysztof.nagraba.todoapp.exception.InvalidRefreshTokenException;
+import krzysztof.nagraba.todoapp.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@Transactional
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long ttlDays;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${security.refresh-token.ttl-days:30}") long ttlDays) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.ttlDays = ttlDays;
+    }
+
+    public record Rotation(User user, String refreshToken) {}
+
+    public String issue(User user) {
+        return store(user, UUID.randomUUID());
+    }
+
+    // Only the stored hash is looked up, no password hashing. Replaying a used token revokes its whole family.
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Rotation rotate(String refreshToken) {
+        LocalDateTime now = LocalDateTime.now();
+
+        RefreshToken current = refreshTokenRepository.findByTokenHashWithUser(TokenDigests.sha256Hex(refreshToken))
+                .orElseThrow(InvalidRefreshTokenException::new);
+
+        if (!current.isActive(now)) {
+            if (current.getUsedAt() != null && current.getRevokedAt() == null) {
+                revokeFamilyOnReuse(current, now);
+            }
+            throw new InvalidRefreshTokenException();
+        }
+
+        if (refreshTokenRepository.markUsed(current.getId(), now) == 0) {
+            revokeFamilyOnReuse(current, now);
+            throw new InvalidRefreshTokenException();
+        }
+
+        User user = current.getUser();
+        if (!user.isEnabled()) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            throw new InvalidRefreshTokenException();
+        }
+
+        return new Rotation(user, store(user, current.getFamilyId()));
+    }
+
+    public void revoke(String refreshToken) {
+        refreshTokenRepository.findByTokenHashWithUser(TokenDigests.sha256Hex(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+    }
+
+    @Scheduled(cron = "${security.refresh-token.cleanup-cron:0 0 3 * * *}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.info("Deleted {} expired refresh tokens", deleted);
+    }
+
+    private void revokeFamilyOnReuse(RefreshToken token, LocalDateTime now) {
+        log.warn("Refresh token reuse detected for user {}, revoking family {}", token.getUser().getId(), token.getFamilyId());
+        refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+    }
+
+    private String store(User user, UUID familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.save(new RefreshToken(
+                TokenDigests.sha256Hex(refreshToken),
+                familyId,
+                user,
+                now,
+                now.plusDays(ttlDays)));
+
+        return refreshToken;
+    }
+}
@@ -0,0 +1,48 @@
+package krzysztof.nagraba.todoapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import krzysztof.nagraba.todoapp.repository.TaskRepository;
+import krzysztof.nagraba.todoapp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate table sizes for count-free listings, read from the planner statistics
+ * (pg_class.reltuples) and cached, so no listing pays for a full count(*).
+ */
+@Service
+public class RowEstimateService {
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final Cache<String, Long> estimates;
+
+    public RowEstimateService(TaskRepository taskRepository,
+                              UserRepository userRepository,
+                              @Value("${pagination.estimate.ttl-seconds:60}") long ttlSeconds) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.estimates = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public long tasks() {
+        return estimates.get("tasks", key -> estimate(taskRepository::estimateRowCount, taskRepository));
+    }
+
+    public long users() {
+        return estimates.get("users", key -> estimate(userRepository::estimateRowCount, userRepository));
+    }
+
+    // reltuples is -1 until the table has been vacuumed or analyzed; fall back to an exact count once.
+    private static long estimate(LongSupplier reltuples, JpaRepository<?, ?> repository) {
+        long estimate = reltuples.getAsLong();
+        return estimate >= 0 ? estimate : repository.count();
+    }
+}
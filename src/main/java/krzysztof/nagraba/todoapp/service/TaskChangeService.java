@@ -0,0 +1,76 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.TaskTombstone;
+import krzysztof.nagraba.todoapp.entity.dto.TaskChangesResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import krzysztof.nagraba.todoapp.exception.ResyncRequiredException;
+import krzysztof.nagraba.todoapp.repository.TaskQueryRepository.ChangedTask;
+import krzysztof.nagraba.todoapp.repository.TaskRepository;
+import krzysztof.nagraba.todoapp.repository.TaskTombstoneRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class TaskChangeService {
+
+    static final int MAX_CHANGES_LIMIT = 1000;
+
+    private final TaskRepository taskRepository;
+    private final TaskTombstoneRepository taskTombstoneRepository;
+    private final Duration tombstoneRetention;
+
+    public TaskChangeService(TaskRepository taskRepository,
+                             TaskTombstoneRepository taskTombstoneRepository,
+                             @Value("${tasks.sync.tombstone-retention-days:30}") long tombstoneRetentionDays) {
+        this.taskRepository = taskRepository;
+        this.taskTombstoneRepository = taskTombstoneRepository;
+        this.tombstoneRetention = Duration.ofDays(tombstoneRetentionDays);
+    }
+
+    // Upserts and tombstones share one sequence; both are read limit + 1 past the cursor and merged,
+    // so the returned cursor is the sequence of the last change handed out and nothing in between is skipped.
+    // Both reads share one snapshot, otherwise a writer committing between them could be half seen.
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public TaskChangesResponse getChanges(Long userId, long since, int limit) {
+        if (limit < 1 || limit > MAX_CHANGES_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_CHANGES_LIMIT + ".");
+        }
+        if (since > 0 && since < taskTombstoneRepository.findPrunedThrough()) {
+            throw new ResyncRequiredException(since);
+        }
+
+        List<ChangedTask> changed = taskRepository.findChangedSince(userId, since, limit + 1);
+        List<TaskTombstone> deleted = taskTombstoneRepository.findDeletedSince(userId, since, limit + 1);
+
+        List<TaskResponse> upserts = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        long cursor = since;
+        int c = 0;
+        int d = 0;
+        while (upserts.size() + deletedIds.size() < limit && (c < changed.size() || d < deleted.size())) {
+            if (d == deleted.size() || (c < changed.size() && changed.get(c).changeSeq() < deleted.get(d).getChangeSeq())) {
+                cursor = changed.get(c).changeSeq();
+                upserts.add(changed.get(c++).task());
+            } else {
+                cursor = deleted.get(d).getChangeSeq();
+                deletedIds.add(deleted.get(d++).getTaskId());
+            }
+        }
+        boolean hasMore = c < changed.size() || d < deleted.size();
+        return new TaskChangesResponse(upserts, deletedIds, cursor, hasMore);
+    }
+
+    @Scheduled(cron = "${tasks.sync.prune-cron:0 0 4 * * *}")
+    @Transactional
+    public void pruneTombstones() {
+        taskTombstoneRepository.pruneOlderThan(LocalDateTime.now().minus(tombstoneRetention));
+    }
+}
@@ -0,0 +1,95 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.dto.TaskEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.context.SmartLifecycle;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Holds one connection in LISTEN on the task channel and hands every notification to the local hub,
+ * so a change committed on any node reaches the streams open on this one.
+ */
+@Slf4j
+public class TaskEventListener implements SmartLifecycle {
+
+    private static final int POLL_MILLIS = 1000;
+
+    private final DataSource dataSource;
+    private final TaskStreamHub hub;
+    private final Duration reconnectDelay;
+    private volatile boolean running;
+    private Thread thread;
+
+    public TaskEventListener(DataSource dataSource, TaskStreamHub hub, Duration reconnectDelay) {
+        this.dataSource = dataSource;
+        this.hub = hub;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::listen, "task-event-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        boolean reconnected = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                statement.execute("LISTEN " + TaskEventPublisher.CHANNEL);
+                if (reconnected) {
+                    hub.resyncAll();
+                }
+                reconnected = true;
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Task event listener lost its connection, retrying in {}", reconnectDelay, e);
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        try {
+            hub.dispatch(TaskEvent.fromPayload(payload));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed task event payload: {}", payload);
+        }
+    }
+}
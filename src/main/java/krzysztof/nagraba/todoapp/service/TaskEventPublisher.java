@@ -0,0 +1,26 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.dto.TaskEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+public class TaskEventPublisher {
+
+    static final String CHANNEL = "task_changes";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TaskEventPublisher(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Postgres queues NOTIFY with the transaction: every node's listener sees it only after commit, never after a rollback.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(TaskEvent event) {
+        jdbcTemplate.query("select pg_notify(?, ?)", (RowCallbackHandler) rs -> { }, CHANNEL, event.toPayload());
+    }
+}
@@ -0,0 +1,106 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.TaskDataFormat;
+import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import krzysztof.nagraba.todoapp.repository.TaskRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes tasks row by row as they come off the database cursor, so memory use does not depend on
+ * how many rows are exported. Must run in one read-only transaction: Postgres only fetches in
+ * batches while the cursor's transaction stays open.
+ */
+@Service
+public class TaskExportService {
+
+    static final String CSV_HEADER = "id,title,status,createdDate,urgency,importance,owner\n";
+
+    // Leading characters that make spreadsheets evaluate a cell, tab and carriage return included.
+    private static final String FORMULA_CHARACTERS = "=+-@\t\r";
+
+    private final TaskRepository taskRepository;
+    private final ObjectWriter jsonWriter;
+
+    public TaskExportService(TaskRepository taskRepository, ObjectMapper objectMapper) {
+        this.taskRepository = taskRepository;
+        this.jsonWriter = objectMapper.writerFor(TaskResponse.class);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportMyTasks(Long userId, TaskDataFormat format, OutputStream out) throws IOException {
+        try (Stream<TaskResponse> tasks = taskRepository.streamResponsesByOwnerId(userId)) {
+            write(tasks, format, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportAllTasks(Long userId, TaskDataFormat format, OutputStream out) throws IOException {
+        try (Stream<TaskResponse> tasks = userId != null
+                ? taskRepository.streamResponsesByOwnerId(userId)
+                : taskRepository.streamAllResponses()) {
+            write(tasks, format, out);
+        }
+    }
+
+    private void write(Stream<TaskResponse> tasks, TaskDataFormat format, OutputStream out) throws IOException {
+        if (format == TaskDataFormat.CSV) {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+        Iterator<TaskResponse> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            TaskResponse task = iterator.next();
+            if (format == TaskDataFormat.CSV) {
+                out.write(toCsvLine(task).getBytes(StandardCharsets.UTF_8));
+            } else {
+                out.write(jsonWriter.writeValueAsBytes(task));
+                out.write('\n');
+            }
+        }
+    }
+
+    private static String toCsvLine(TaskResponse task) {
+        return task.getId() + ","
+                + csvField(task.getTaskTitle()) + ","
+                + task.getStatus() + ","
+                + task.getCreatedDate() + ","
+                + task.getUrgency() + ","
+                + task.getImportance() + ","
+                + csvField(task.getOwner()) + "\n";
+    }
+
+    // Quotes per RFC 4180. A value a spreadsheet would read as a formula gets one leading apostrophe, so it
+    // shows as typed; apostrophes already in front of a formula character get one more, which keeps the guard
+    // reversible by unguardFormula on import.
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        String text = startsFormula(value) ? "'" + value : value;
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    // Drops the apostrophe csvField added, so an exported title is imported back unchanged.
+    static String unguardFormula(String value) {
+        return value != null && value.startsWith("'") && startsFormula(value) ? value.substring(1) : value;
+    }
+
+    private static boolean startsFormula(String value) {
+        int i = 0;
+        while (i < value.length() && value.charAt(i) == '\'') {
+            i++;
+        }
+        return i < value.length() && FORMULA_CHARACTERS.indexOf(value.charAt(i)) >= 0;
+    }
+}
@@ -0,0 +1,297 @@
+package krzysztof.nagraba.todoapp.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import krzysztof.nagraba.todoapp.entity.Importance;
+import krzysztof.nagraba.todoapp.entity.TaskDataFormat;
+import krzysztof.nagraba.todoapp.entity.Urgency;
+import krzysztof.nagraba.todoapp.entity.dto.CreateTaskDto;
+import krzysztof.nagraba.todoapp.entity.dto.TaskImportProgress;
+import krzysztof.nagraba.todoapp.exception.UserNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads an import one row at a time, validates each row as a {@link CreateTaskDto} and loads valid rows
+ * in chunks through {@link TaskService#importMyTasks}. At most one chunk is held in memory, and no row is
+ * buffered past {@link #MAX_RECORD_LENGTH} characters; rejected rows and progress after every chunk are
+ * written to the report as they happen.
+ */
+@Slf4j
+@Service
+public class TaskImportService {
+
+    // Far above any valid row (titles are at most 50 characters), low enough to cap memory per row.
+    static final int MAX_RECORD_LENGTH = 4096;
+
+    private final TaskService taskService;
+    private final Validator validator;
+    private final ObjectReader rowReader;
+    private final ObjectWriter reportWriter;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public TaskImportService(TaskService taskService,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             @Value("${tasks.import.chunk-size:5000}") int chunkSize,
+                             @Value("${tasks.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.taskService = taskService;
+        this.validator = validator;
+        this.rowReader = objectMapper.readerFor(CreateTaskDto.class);
+        this.reportWriter = objectMapper.writerFor(TaskImportProgress.class);
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public void importMyTasks(Long userId, TaskDataFormat format, InputStream in, OutputStream report) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<CreateTaskDto> chunk = new ArrayList<>(chunkSize);
+        long imported = 0;
+        long rejected = 0;
+        long row = 0;
+        try {
+            CsvColumns columns = format == TaskDataFormat.CSV ? CsvColumns.of(readCsvRecord(reader)) : null;
+            while (true) {
+                CreateTaskDto task;
+                List<String> errors;
+                try {
+                    task = columns != null ? nextCsvRow(reader, columns) : nextJsonRow(reader);
+                    if (task == null) {
+                        break;
+                    }
+                    errors = validate(task);
+                } catch (JacksonException | IllegalArgumentException e) {
+                    task = null;
+                    errors = List.of("Malformed row.");
+                }
+                row++;
+
+                if (!errors.isEmpty()) {
+                    rejected++;
+                    if (rejected <= maxReportedErrors) {
+                        write(report, TaskImportProgress.rowError(row, errors));
+                    }
+                    continue;
+                }
+                chunk.add(task);
+                if (chunk.size() == chunkSize) {
+                    imported += taskService.importMyTasks(userId, chunk);
+                    chunk.clear();
+                    write(report, TaskImportProgress.progress(imported, rejected));
+                    report.flush();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                imported += taskService.importMyTasks(userId, chunk);
+            }
+            write(report, TaskImportProgress.done(imported, rejected));
+        } catch (IllegalArgumentException | UserNotFoundException e) {
+            log.warn("Task import for user {} stopped after {} rows: {}", userId, imported, e.getMessage());
+            write(report, TaskImportProgress.failed(imported, rejected, e.getMessage()));
+        } catch (RuntimeException e) {
+            // Database and driver messages stay in the log; the client only learns how far the import got.
+            log.error("Task import for user {} failed after {} rows", userId, imported, e);
+            write(report, TaskImportProgress.failed(imported, rejected, "Import failed."));
+        }
+        report.flush();
+    }
+
+    private CreateTaskDto nextJsonRow(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = readLine(reader);
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        CreateTaskDto task = rowReader.readValue(line);
+        if (task == null) {
+            throw new IllegalArgumentException("Malformed row.");
+        }
+        return task;
+    }
+
+    private static CreateTaskDto nextCsvRow(BufferedReader reader, CsvColumns columns) throws IOException {
+        List<String> record;
+        do {
+            record = readCsvRecord(reader);
+            if (record == null) {
+                return null;
+            }
+        } while (record.size() == 1 && record.get(0).isBlank());
+
+        CreateTaskDto task = new CreateTaskDto();
+        task.setTaskTitle(TaskExportService.unguardFormula(columns.value(record, columns.title)));
+        String urgency = columns.value(record, columns.urgency);
+        String importance = columns.value(record, columns.importance);
+        task.setUrgency(urgency == null || urgency.isBlank() ? null : Urgency.valueOf(urgency.trim().toUpperCase(Locale.ROOT)));
+        task.setImportance(importance == null || importance.isBlank() ? null : Importance.valueOf(importance.trim().toUpperCase(Locale.ROOT)));
+        return task;
+    }
+
+    private List<String> validate(CreateTaskDto task) {
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<CreateTaskDto> violation : validator.validate(task)) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        errors.sort(null);
+        return errors;
+    }
+
+    private void write(OutputStream report, TaskImportProgress line) throws IOException {
+        report.write(reportWriter.writeValueAsBytes(line));
+        report.write('\n');
+    }
+
+    // Like BufferedReader.readLine, but a line longer than MAX_RECORD_LENGTH is skipped without being buffered.
+    static String readLine(BufferedReader reader) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = reader.read()) >= 0 && c != '\n') {
+            if (line.length() == MAX_RECORD_LENGTH) {
+                skipLine(reader);
+                throw new IllegalArgumentException("Row too long.");
+            }
+            line.append((char) c);
+        }
+        if (c < 0 && line.isEmpty()) {
+            return null;
+        }
+        if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line.toString();
+    }
+
+    // RFC 4180 record, read character by character: quoted fields may hold commas, doubled quotes and
+    // line breaks, which are kept as sent. Outside quotes LF, CRLF or CR ends the record.
+    static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        while (c >= 0) {
+            if (++length > MAX_RECORD_LENGTH) {
+                skipCsvRecord(reader, c, quoted);
+                throw new IllegalArgumentException("CSV record too long.");
+            }
+            char ch = (char) c;
+            if (quoted) {
+                if (ch != '"') {
+                    field.append(ch);
+                } else if (peek(reader) == '"') {
+                    field.append((char) reader.read());
+                } else {
+                    quoted = false;
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n') {
+                break;
+            } else if (ch == '\r') {
+                if (peek(reader) == '\n') {
+                    reader.read();
+                }
+                break;
+            } else {
+                field.append(ch);
+            }
+            c = reader.read();
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted CSV field.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static int peek(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        int c = reader.read();
+        reader.reset();
+        return c;
+    }
+
+    // Discards the rest of an overlong record from c on without buffering it. Quotes are still tracked, so a
+    // line break inside a quoted field does not end the record and the rest of the field is not read as rows.
+    private static void skipCsvRecord(BufferedReader reader, int c, boolean quoted) throws IOException {
+        while (c >= 0) {
+            if (c == '"') {
+                if (quoted && peek(reader) == '"') {
+                    reader.read();
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (!quoted && c == '\n') {
+                return;
+            } else if (!quoted && c == '\r') {
+                if (peek(reader) == '\n') {
+                    reader.read();
+                }
+                return;
+            }
+            c = reader.read();
+        }
+    }
+
+    // Discards the rest of the physical line, so reading resumes at the next row.
+    private static void skipLine(BufferedReader reader) throws IOException {
+        int c;
+        do {
+            c = reader.read();
+        } while (c >= 0 && c != '\n');
+    }
+
+    // Header names are matched case-insensitively; "title" is accepted so an export can be imported back.
+    // Titles lose one apostrophe in front of a formula character, the one the export added.
+    private record CsvColumns(int title, int urgency, int importance) {
+
+        static CsvColumns of(List<String> header) {
+            if (header == null) {
+                throw new IllegalArgumentException("CSV header is missing.");
+            }
+            int title = -1;
+            int urgency = -1;
+            int importance = -1;
+            for (int i = 0; i < header.size(); i++) {
+                switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "tasktitle", "title" -> title = i;
+                    case "urgency" -> urgency = i;
+                    case "importance" -> importance = i;
+                    default -> { }
+                }
+            }
+            if (title < 0) {
+                throw new IllegalArgumentException("CSV header must contain a taskTitle column.");
+            }
+            return new CsvColumns(title, urgency, importance);
+        }
+
+        String value(List<String> record, int column) {
+            return column >= 0 && column < record.size() ? record.get(column) : null;
+        }
+    }
+}
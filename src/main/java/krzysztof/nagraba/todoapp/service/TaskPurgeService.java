@@ -0,0 +1,32 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Clears all of a user's tasks in one status as a series of bounded deletes, each committed on its own
+ * with its counters. Locks and undo stay small however many rows match, and concurrent writers to the
+ * same user wait at most one chunk.
+ */
+@Service
+public class TaskPurgeService {
+
+    private final TaskService taskService;
+    private final int chunkSize;
+
+    public TaskPurgeService(TaskService taskService, @Value("${tasks.delete.chunk-size:1000}") int chunkSize) {
+        this.taskService = taskService;
+        this.chunkSize = chunkSize;
+    }
+
+    public long deleteMyTasksByStatus(Long userId, TaskStatus taskStatus) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = taskService.deleteMyTasksByStatusChunk(userId, taskStatus, chunkSize);
+            total += deleted;
+        } while (deleted == chunkSize);
+        return total;
+    }
+}
@@ -1,30 +1,71 @@
 package krzysztof.nagraba.todoapp.service;
 
-import krzysztof.nagraba.todoapp.entity.User;
+import krzysztof.nagraba.todoapp.exception.PreconditionFailedException;
 import krzysztof.nagraba.todoapp.exception.TaskNotFoundException;
 import krzysztof.nagraba.todoapp.exception.UserNotFoundException;
 import krzysztof.nagraba.todoapp.mapper.TaskMapper;
+import krzysztof.nagraba.todoapp.mapper.TaskSummaryMapper;
 import krzysztof.nagraba.todoapp.entity.Task;
+import krzysztof.nagraba.todoapp.entity.TaskEventType;
 import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.dto.BulkTaskResponse;
 import krzysztof.nagraba.todoapp.entity.dto.CreateTaskDto;
+import krzysztof.nagraba.todoapp.entity.dto.CursorPage;
+import krzysztof.nagraba.todoapp.entity.dto.SliceResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskCount;
+import krzysztof.nagraba.todoapp.entity.dto.TaskCursor;
+import krzysztof.nagraba.todoapp.entity.dto.TaskEvent;
+import krzysztof.nagraba.todoapp.entity.dto.TaskFilter;
+import krzysztof.nagraba.todoapp.entity.dto.TaskSummaryResponse;
 import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
 import krzysztof.nagraba.todoapp.entity.dto.UpdateTaskDto;
+import krzysztof.nagraba.todoapp.repository.TaskQueryRepository.AffectedTask;
+import krzysztof.nagraba.todoapp.repository.TaskQueryRepository.ConditionalUpdate;
 import krzysztof.nagraba.todoapp.repository.TaskRepository;
 import krzysztof.nagraba.todoapp.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Transactional
 @Service
 public class TaskService {
+    static final int MAX_CURSOR_PAGE_SIZE = 100;
+    static final int MAX_SEARCH_TERMS = 8;
+    static final int MAX_BULK_IDS = 1000;
+    private static final String OWNER_FOREIGN_KEY = "fk_tasks_user";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
+    private final RowEstimateService rowEstimateService;
+    private final TaskStatsService taskStatsService;
+    private final TaskEventPublisher taskEventPublisher;
 
-    public TaskService(TaskRepository taskRepository, UserRepository userRepository) {
+    public TaskService(TaskRepository taskRepository,
+                       UserRepository userRepository,
+                       RowEstimateService rowEstimateService,
+                       TaskStatsService taskStatsService,
+                       TaskEventPublisher taskEventPublisher) {
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
+        this.rowEstimateService = rowEstimateService;
+        this.taskStatsService = taskStatsService;
+        this.taskEventPublisher = taskEventPublisher;
     }
 
     //For admin
@@ -32,86 +73,354 @@ public class TaskService {
     //All tasks
     @Transactional(readOnly = true)
     public Page<TaskResponse> getAllTasks(
-            TaskStatus status,
+            TaskFilter filter,
             Pageable pageable) {
 
-        Page<Task> page;
+        if(filter.hasCriteria()) {
+            return taskRepository.findResponses(null, filter, pageable);
+        }
+        return taskRepository.findAllResponses(pageable);
+    }
+
+    // Table-level estimate only, so it is offered for the unfiltered listing.
+    @Transactional(readOnly = true)
+    public SliceResponse<TaskResponse> getAllTasksSlice(TaskStatus status, Pageable pageable, boolean estimateTotal) {
+        if(status != null) {
+            return SliceResponse.of(taskRepository.findResponsesByStatusAsSlice(status, pageable), null);
+        }
+        Slice<TaskResponse> slice = taskRepository.findAllResponsesAsSlice(pageable);
+        return SliceResponse.of(slice, estimateTotal ? rowEstimateService.tasks() : null);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<TaskResponse> getAllTasksByCursor(TaskStatus status, String after, int size) {
+        Limit limit = cursorLimit(size);
+        TaskCursor cursor = after != null ? TaskCursor.decode(after) : null;
+
+        List<TaskResponse> rows;
         if(status != null) {
-            page = taskRepository.findByStatus(status, pageable);
+            rows = cursor == null
+                    ? taskRepository.findFirstResponsesByStatus(status, limit)
+                    : taskRepository.findResponsesByStatusAfter(status, cursor.createdDate(), cursor.id(), limit);
         } else {
-            page = taskRepository.findAll(pageable);
+            rows = cursor == null
+                    ? taskRepository.findFirstResponses(limit)
+                    : taskRepository.findResponsesAfter(cursor.createdDate(), cursor.id(), limit);
         }
 
-        return page.map(TaskMapper::toResponse);
+        return toCursorPage(rows, limit.max() - 1);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<TaskResponse> searchAllTasks(Long userId, String q, String after, int size) {
+        return search(userId, q, after, size);
     }
 
     //All tasks per User
     @Transactional(readOnly = true)
     public Page<TaskResponse> getAllUserTasks(Long userId, TaskStatus taskStatus, Pageable pageable) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
+        Page<TaskResponse> page;
+        if(taskStatus != null) {
+            page = taskRepository.findResponsesByOwnerIdAndStatus(userId, taskStatus, pageable);
+        } else {
+            page = taskRepository.findResponsesByOwnerId(userId, pageable);
+        }
 
-        Page<Task> page;
+        // An empty page is the only case where a missing user is indistinguishable from a user without tasks.
+        if(page.isEmpty() && !userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return page;
+    }
 
+    @Transactional(readOnly = true)
+    public SliceResponse<TaskResponse> getAllUserTasksSlice(Long userId, TaskStatus taskStatus, Pageable pageable) {
+        Slice<TaskResponse> slice;
         if(taskStatus != null) {
-            page = taskRepository.findByOwnerAndStatus(user, taskStatus, pageable);
+            slice = taskRepository.findResponsesByOwnerIdAndStatusAsSlice(userId, taskStatus, pageable);
         } else {
-            page = taskRepository.findByOwner(user, pageable);
+            slice = taskRepository.findResponsesByOwnerIdAsSlice(userId, pageable);
         }
 
-        return page.map(TaskMapper::toResponse);
+        if(slice.isEmpty() && !userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return SliceResponse.of(slice, null);
+    }
+
+    @Transactional(readOnly = true)
+    public TaskSummaryResponse getUserTaskSummary(Long userId) {
+        List<TaskCount> counts = taskRepository.countByQuadrantAndStatus(userId);
+
+        if(counts.isEmpty() && !userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return TaskSummaryMapper.toResponse(counts);
     }
 
     //For user
 
     @Transactional(readOnly = true)
     public TaskResponse getMyTask(Long taskId, Long userId) {
-        Task task = taskRepository.findByIdAndOwnerId(taskId, userId).orElseThrow(() -> new TaskNotFoundException(taskId));
-        return TaskMapper.toResponse(task);
+        return taskRepository.findResponseByIdAndOwnerId(taskId, userId).orElseThrow(() -> new TaskNotFoundException(taskId));
+    }
+
+    @Transactional(readOnly = true)
+    public long getMyTaskVersion(Long taskId, Long userId) {
+        return taskRepository.findVersionByIdAndOwnerId(taskId, userId).orElseThrow(() -> new TaskNotFoundException(taskId));
+    }
+
+    @Transactional(readOnly = true)
+    public long getMyTasksRevision(Long userId) {
+        return taskStatsService.revision(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<TaskResponse> getMyTasks(Long userId, TaskFilter filter, Pageable pageable) {
+        if(filter.hasCriteria()) {
+            return taskRepository.findResponses(userId, filter, pageable);
+        }
+        return taskRepository.findResponsesByOwnerId(userId, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<TaskResponse> getMyTasksByCursor(Long userId, String after, int size) {
+        Limit limit = cursorLimit(size);
+
+        List<TaskResponse> rows;
+        if(after == null) {
+            rows = taskRepository.findFirstResponsesByOwnerId(userId, limit);
+        } else {
+            TaskCursor cursor = TaskCursor.decode(after);
+            rows = taskRepository.findResponsesByOwnerIdAfter(userId, cursor.createdDate(), cursor.id(), limit);
+        }
+
+        return toCursorPage(rows, limit.max() - 1);
     }
 
     @Transactional(readOnly = true)
-    public Page<TaskResponse> getMyTasks(Long userId, Pageable pageable) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
+    public CursorPage<TaskResponse> searchMyTasks(Long userId, String q, String after, int size) {
+        return search(userId, q, after, size);
+    }
 
-        return taskRepository.findByOwner(user, pageable)
-                .map(TaskMapper::toResponse);
+    @Transactional(readOnly = true)
+    public TaskSummaryResponse getMyTaskSummary(Long userId) {
+        return TaskSummaryMapper.toResponse(taskRepository.countByQuadrantAndStatus(userId));
     }
 
+    // Every write takes the owner's change lock first: writers of one user's tasks then commit in change-sequence
+    // order, and the lock always comes before the user_task_stats row, whenever Hibernate flushes.
     @Transactional
-    public TaskResponse createMyTask(CreateTaskDto createTaskDto, Long userId) {
+    public TaskResponse createMyTask(CreateTaskDto createTaskDto, Long userId, String ownerEmail) {
+        taskRepository.lockChanges(userId);
         Task task = TaskMapper.toNewEntity(createTaskDto);
-        User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
-        task.setOwner(user);
-        Task savedTask = taskRepository.save(task);
+        task.setOwner(userRepository.getReferenceById(userId));
 
-        return TaskMapper.toResponse(savedTask);
+        Task savedTask;
+        try {
+            savedTask = taskRepository.save(task);
+        } catch (DataIntegrityViolationException e) {
+            if (isMissingOwner(e)) {
+                throw new UserNotFoundException(userId);
+            }
+            throw e;
+        }
+        taskStatsService.taskCreated(userId, savedTask.getStatus());
+        taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.CREATED, savedTask.getId(), savedTask.getStatus()));
+
+        return TaskMapper.toResponse(savedTask, ownerEmail);
+    }
+
+    // Each chunk commits on its own together with its counters, so a failed import keeps the chunks already loaded.
+    @Transactional
+    public long importMyTasks(Long userId, List<CreateTaskDto> tasks) {
+        taskRepository.lockChanges(userId);
+        long imported;
+        try {
+            imported = taskRepository.copyTasks(userId, tasks);
+        } catch (DataIntegrityViolationException e) {
+            if (isMissingOwner(e)) {
+                throw new UserNotFoundException(userId);
+            }
+            throw e;
+        }
+        taskStatsService.tasksCreated(userId, TaskStatus.TODO, imported);
+        if(imported > 0) {
+            taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.IMPORTED, null, TaskStatus.TODO));
+        }
+        return imported;
     }
 
     @Transactional
     public void updateMyTask(Long taskId, UpdateTaskDto updateTaskDto, Long userId) {
+        taskRepository.lockChanges(userId);
         Task task = taskRepository.findByIdAndOwnerId(taskId, userId).orElseThrow(() -> new TaskNotFoundException(taskId));
+        TaskStatus previousStatus = task.getStatus();
 
         TaskMapper.updateEntity(task, updateTaskDto);
+        taskStatsService.taskUpdated(userId, previousStatus, task.getStatus());
+        taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.UPDATED, taskId, task.getStatus()));
+    }
+
+    @Transactional
+    public long updateMyTaskIfMatch(Long taskId, UpdateTaskDto updateTaskDto, Long userId, long expectedVersion) {
+        taskRepository.lockChanges(userId);
+        ConditionalUpdate result = taskRepository.updateIfVersion(taskId, userId, expectedVersion, updateTaskDto)
+                .orElseThrow(() -> conditionalUpdateFailure(taskId, userId));
+
+        taskStatsService.taskUpdated(userId, result.previousStatus(), updateTaskDto.getStatus());
+        taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.UPDATED, taskId, updateTaskDto.getStatus()));
+        return result.version();
     }
 
     @Transactional
     public void updateMyStatus(Long taskId, TaskStatus newStatus, Long userId) {
+        taskRepository.lockChanges(userId);
         Task task = taskRepository.findByIdAndOwnerId(taskId, userId).orElseThrow(() -> new TaskNotFoundException(taskId));
+        TaskStatus previousStatus = task.getStatus();
 
         task.setStatus(newStatus);
+        taskStatsService.taskUpdated(userId, previousStatus, newStatus);
+        taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.STATUS_CHANGED, taskId, newStatus));
+    }
+
+    @Transactional
+    public long updateMyStatusIfMatch(Long taskId, TaskStatus newStatus, Long userId, long expectedVersion) {
+        taskRepository.lockChanges(userId);
+        ConditionalUpdate result = taskRepository.updateStatusIfVersion(taskId, userId, expectedVersion, newStatus)
+                .orElseThrow(() -> conditionalUpdateFailure(taskId, userId));
+
+        taskStatsService.taskUpdated(userId, result.previousStatus(), newStatus);
+        taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.STATUS_CHANGED, taskId, newStatus));
+        return result.version();
+    }
+
+    // One set-based statement for the whole list; ownership is part of its predicate, so no entity is loaded.
+    @Transactional
+    public BulkTaskResponse updateMyStatuses(Collection<Long> ids, TaskStatus newStatus, Long userId) {
+        Set<Long> requested = bulkIds(ids);
+        taskRepository.lockChanges(userId);
+        List<AffectedTask> updated = taskRepository.updateStatusByIds(userId, requested, newStatus);
+
+        taskStatsService.tasksUpdated(userId, updated.stream().map(AffectedTask::previousStatus).toList(), newStatus);
+        if(!updated.isEmpty()) {
+            taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.BULK_STATUS_CHANGED, null, newStatus));
+        }
+        return toBulkResponse(requested, updated);
+    }
+
+    @Transactional
+    public BulkTaskResponse deleteMyTasks(Collection<Long> ids, Long userId) {
+        Set<Long> requested = bulkIds(ids);
+        taskRepository.lockChanges(userId);
+        List<AffectedTask> deleted = taskRepository.deleteByIds(userId, requested);
+
+        taskStatsService.tasksDeleted(userId, deleted.stream().map(AffectedTask::previousStatus).toList());
+        if(!deleted.isEmpty()) {
+            taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.BULK_DELETED, null, null));
+        }
+        return toBulkResponse(requested, deleted);
+    }
+
+    // Only the owner foreign key means the user is gone; any other violation is a bug and must surface as one.
+    private static boolean isMissingOwner(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return OWNER_FOREIGN_KEY.equalsIgnoreCase(violation.getConstraintName());
+            }
+            if (cause instanceof SQLException sqlException && FOREIGN_KEY_VIOLATION.equals(sqlException.getSQLState())) {
+                return sqlException.getMessage() != null && sqlException.getMessage().contains(OWNER_FOREIGN_KEY);
+            }
+        }
+        return false;
+    }
+
+    private static Set<Long> bulkIds(Collection<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if(requested.isEmpty() || requested.size() > MAX_BULK_IDS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_BULK_IDS + " task ids are allowed.");
+        }
+        return requested;
+    }
+
+    private static BulkTaskResponse toBulkResponse(Set<Long> requested, List<AffectedTask> affected) {
+        Set<Long> affectedIds = affected.stream().map(AffectedTask::id).collect(Collectors.toSet());
+        return new BulkTaskResponse(
+                requested.stream().filter(affectedIds::contains).toList(),
+                requested.stream().filter(id -> !affectedIds.contains(id)).toList());
+    }
+
+    // Only reached when the compare-and-set matched no row: tell a missing task from a stale version.
+    private RuntimeException conditionalUpdateFailure(Long taskId, Long userId) {
+        if(taskRepository.findVersionByIdAndOwnerId(taskId, userId).isEmpty()) {
+            return new TaskNotFoundException(taskId);
+        }
+        return new PreconditionFailedException(taskId);
     }
 
     @Transactional
     public void deleteMyTask(Long taskId, Long userId) {
+        taskRepository.lockChanges(userId);
         Task task = taskRepository.findByIdAndOwnerId(taskId, userId).orElseThrow(() -> new TaskNotFoundException(taskId));
 
         taskRepository.delete(task);
+        taskStatsService.tasksDeleted(userId, task.getStatus(), 1);
+        taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.DELETED, taskId, null));
     }
 
+    // One short transaction per chunk; TaskPurgeService repeats it until the status is cleared.
     @Transactional
-    public void deleteMyTasksByStatus(Long userId, TaskStatus taskStatus) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
+    public int deleteMyTasksByStatusChunk(Long userId, TaskStatus taskStatus, int limit) {
+        taskRepository.lockChanges(userId);
+        int deleted = taskRepository.deleteChunkByOwnerIdAndStatus(userId, taskStatus.name(), limit);
+        taskStatsService.tasksDeleted(userId, taskStatus, deleted);
+        if(deleted > 0) {
+            taskEventPublisher.publish(new TaskEvent(userId, TaskEventType.DELETED_BY_STATUS, null, taskStatus));
+        }
+        return deleted;
+    }
+
+    // One extra row tells whether another page exists without a count query.
+    private static Limit cursorLimit(int size) {
+        if(size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE + ".");
+        }
+        return Limit.of(size + 1);
+    }
+
+    private static CursorPage<TaskResponse> toCursorPage(List<TaskResponse> rows, int size) {
+        boolean hasNext = rows.size() > size;
+        List<TaskResponse> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? TaskCursor.of(content.get(size - 1)).encode() : null;
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
 
-        taskRepository.deleteAllByOwnerAndStatus(user, taskStatus);
+    private CursorPage<TaskResponse> search(Long ownerId, String q, String after, int size) {
+        String tsQuery = toPrefixQuery(q);
+        Limit limit = cursorLimit(size);
+        TaskCursor cursor = after != null ? TaskCursor.decode(after) : null;
+
+        List<TaskResponse> rows = taskRepository.search(
+                ownerId,
+                tsQuery,
+                cursor != null ? cursor.createdDate() : null,
+                cursor != null ? cursor.id() : null,
+                limit.max());
+
+        return toCursorPage(rows, size);
+    }
+
+    // Every word must match as a prefix: "buy mi" -> "buy:* & mi:*". Only letters and digits reach
+    // to_tsquery, so user input cannot inject tsquery operators.
+    static String toPrefixQuery(String q) {
+        String[] words = q == null ? new String[0] : q.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        List<String> terms = Arrays.stream(words)
+                .filter(term -> !term.isEmpty())
+                .limit(MAX_SEARCH_TERMS)
+                .toList();
+        if(terms.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain at least one word.");
+        }
+        return terms.stream().map(term -> term + ":*").collect(Collectors.joining(" & "));
     }
 }
@@ -0,0 +1,33 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.repository.UserTaskStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+public class TaskStatsReconciler {
+
+    private final UserTaskStatsRepository userTaskStatsRepository;
+    private final TaskStatsService taskStatsService;
+
+    public TaskStatsReconciler(UserTaskStatsRepository userTaskStatsRepository, TaskStatsService taskStatsService) {
+        this.userTaskStatsRepository = userTaskStatsRepository;
+        this.taskStatsService = taskStatsService;
+    }
+
+    // Detection is one read-only scan; each drifted user is then repaired in its own short transaction.
+    @Scheduled(cron = "${tasks.stats.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        List<Long> drifted = userTaskStatsRepository.findDriftedUserIds();
+        for (Long userId : drifted) {
+            taskStatsService.repair(userId);
+        }
+        if (!drifted.isEmpty()) {
+            log.warn("Repaired task counters for {} users", drifted.size());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.dto.TaskStatsResponse;
+import krzysztof.nagraba.todoapp.repository.UserTaskStatsRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps user_task_stats in step with tasks. The change methods join the caller's transaction, so
+ * counters commit or roll back together with the task rows they describe.
+ */
+@Service
+public class TaskStatsService {
+
+    private final UserTaskStatsRepository userTaskStatsRepository;
+
+    public TaskStatsService(UserTaskStatsRepository userTaskStatsRepository) {
+        this.userTaskStatsRepository = userTaskStatsRepository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void taskCreated(Long userId, TaskStatus status) {
+        add(userId, status, 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tasksCreated(Long userId, TaskStatus status, long count) {
+        if (count > 0) {
+            add(userId, status, count);
+        }
+    }
+
+    // Called for every task update, even without a status change, to advance the listing revision.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void taskUpdated(Long userId, TaskStatus from, TaskStatus to) {
+        tasksUpdated(userId, List.of(from), to);
+    }
+
+    // One upsert for any number of moved tasks; skipped when nothing matched, so the revision stays put.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tasksUpdated(Long userId, Collection<TaskStatus> from, TaskStatus to) {
+        if (from.isEmpty()) {
+            return;
+        }
+        long[] delta = new long[TaskStatus.values().length];
+        for (TaskStatus status : from) {
+            if (status != to) {
+                delta[status.ordinal()] -= 1;
+                delta[to.ordinal()] += 1;
+            }
+        }
+        addCounts(userId, delta);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tasksDeleted(Long userId, TaskStatus status, long count) {
+        if (count > 0) {
+            add(userId, status, -count);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tasksDeleted(Long userId, Collection<TaskStatus> statuses) {
+        if (statuses.isEmpty()) {
+            return;
+        }
+        long[] delta = new long[TaskStatus.values().length];
+        for (TaskStatus status : statuses) {
+            delta[status.ordinal()] -= 1;
+        }
+        addCounts(userId, delta);
+    }
+
+    @Transactional(readOnly = true)
+    public TaskStatsResponse getStats(Long userId) {
+        return userTaskStatsRepository.findById(userId)
+                .map(stats -> new TaskStatsResponse(
+                        stats.getTodoCount(),
+                        stats.getInProgressCount(),
+                        stats.getDoneCount(),
+                        stats.getTodoCount() + stats.getInProgressCount() + stats.getDoneCount()))
+                .orElseGet(() -> new TaskStatsResponse(0, 0, 0, 0));
+    }
+
+    @Transactional(readOnly = true)
+    public long revision(Long userId) {
+        return userTaskStatsRepository.findRevisionByUserId(userId).orElse(0L);
+    }
+
+    // Locking the counter row first makes concurrent writers wait, so the recount sees every committed task
+    // and no in-flight delta is overwritten.
+    @Transactional
+    public void repair(Long userId) {
+        userTaskStatsRepository.lockByUserId(userId);
+        userTaskStatsRepository.recount(userId);
+    }
+
+    private void addCounts(Long userId, long[] delta) {
+        userTaskStatsRepository.addCounts(userId,
+                delta[TaskStatus.TODO.ordinal()],
+                delta[TaskStatus.IN_PROGRESS.ordinal()],
+                delta[TaskStatus.DONE.ordinal()]);
+    }
+
+    private void add(Long userId, TaskStatus status, long count) {
+        userTaskStatsRepository.addCounts(userId,
+                status == TaskStatus.TODO ? count : 0,
+                status == TaskStatus.IN_PROGRESS ? count : 0,
+                status == TaskStatus.DONE ? count : 0);
+    }
+}
@@ -0,0 +1,260 @@
+package krzysztof.nagraba.todoapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import krzysztof.nagraba.todoapp.config.SecurityEpochRegistry;
+import krzysztof.nagraba.todoapp.config.VerifiedToken;
+import krzysztof.nagraba.todoapp.entity.dto.TaskEvent;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open task streams of this node, keyed by user. An idle stream is a parked async request plus a small
+ * bounded queue; writes happen on a few sender threads, at most one per stream at a time. A stream whose
+ * queue is full is a slow consumer and is closed instead of buffering without limit.
+ * <p>
+ * Servlet writes block, so a client that stops reading holds its sender thread until the container's write
+ * timeout. A send running past {@code sendTimeout} evicts its stream and the pool gets a spare thread until
+ * that send returns, so the other streams keep draining. Streams are closed from their own drain, never
+ * from the caller, because completing an emitter waits for a send in progress.
+ */
+public class TaskStreamHub {
+
+    private static final Object HEARTBEAT = new Object();
+    private static final Object RESYNC = new Object();
+    private static final long NOT_SENDING = Long.MIN_VALUE;
+    private static final long STALLED = Long.MIN_VALUE + 1;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final int bufferSize;
+    private final Duration timeout;
+    private final Duration sendTimeout;
+    private final int maxStalledSends;
+    private final ThreadPoolExecutor sender;
+    private final SecurityEpochRegistry securityEpochs;
+    private final TokenRevocationService tokenRevocations;
+    private final AtomicInteger stalledSends = new AtomicInteger();
+    private final Counter evicted;
+
+    public TaskStreamHub(int bufferSize,
+                         Duration timeout,
+                         Duration sendTimeout,
+                         int maxStalledSends,
+                         ThreadPoolExecutor sender,
+                         SecurityEpochRegistry securityEpochs,
+                         TokenRevocationService tokenRevocations,
+                         MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.sendTimeout = sendTimeout;
+        this.maxStalledSends = maxStalledSends;
+        this.sender = sender;
+        this.securityEpochs = securityEpochs;
+        this.tokenRevocations = tokenRevocations;
+        this.evicted = Counter.builder("tasks.stream.evicted").register(meterRegistry);
+        Gauge.builder("tasks.stream.connections", connections, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("tasks.stream.stalled-sends", stalledSends, AtomicInteger::get).register(meterRegistry);
+    }
+
+    // The token is kept so the stream ends when the token is revoked or the user's security epoch moves on.
+    public SseEmitter subscribe(Long userId, VerifiedToken token) {
+        Subscriber subscriber = new Subscriber(userId, token, createEmitter(), new ArrayBlockingQueue<>(bufferSize));
+        subscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        connections.incrementAndGet();
+
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(e -> remove(subscriber));
+        return subscriber.emitter;
+    }
+
+    public void dispatch(TaskEvent event) {
+        Set<Subscriber> userSubscribers = subscribers.get(event.userId());
+        if (userSubscribers != null) {
+            userSubscribers.forEach(subscriber -> enqueue(subscriber, event));
+        }
+    }
+
+    // Keeps proxies from closing idle streams and finds dead clients, whose write then fails. Streams opened
+    // with a token that has since been revoked, here or on another node, are closed on the same beat.
+    @Scheduled(fixedRateString = "${tasks.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            if (isRevoked(subscriber.token)) {
+                close(subscriber);
+            }
+        }));
+        broadcast(HEARTBEAT);
+    }
+
+    @Scheduled(fixedRateString = "${tasks.stream.stall-check-ms:1000}")
+    public void evictStalledSends() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            long started = subscriber.sendStartedAt.get();
+            if (started != NOT_SENDING && started != STALLED && now - started > sendTimeout.toNanos()
+                    && subscriber.sendStartedAt.compareAndSet(started, STALLED)) {
+                evicted.increment();
+                close(subscriber);
+                if (stalledSends.incrementAndGet() <= maxStalledSends) {
+                    resizeSender(1);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Tells every stream that events may have been missed, so clients catch up through the change feed.
+     */
+    public void resyncAll() {
+        broadcast(RESYNC);
+    }
+
+    public int connections() {
+        return connections.get();
+    }
+
+    public void shutdown() {
+        sender.shutdownNow();
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+        connections.set(0);
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    private void broadcast(Object message) {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> enqueue(subscriber, message)));
+    }
+
+    private void enqueue(Subscriber subscriber, Object message) {
+        if (!subscriber.queue.offer(message)) {
+            evicted.increment();
+            close(subscriber);
+            return;
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void close(Subscriber subscriber) {
+        remove(subscriber);
+        subscriber.closed = true;
+        subscriber.queue.clear();
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Object message;
+            while (!subscriber.closed && (message = subscriber.queue.poll()) != null) {
+                subscriber.sendStartedAt.set(System.nanoTime());
+                subscriber.emitter.send(toSse(message));
+                endSend(subscriber);
+            }
+            if (subscriber.closed && subscriber.completed.compareAndSet(false, true)) {
+                subscriber.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            remove(subscriber);
+            return;
+        } finally {
+            endSend(subscriber);
+            subscriber.draining.set(false);
+        }
+        // A message or close that arrived after the last poll but before the flag was cleared would otherwise wait.
+        if (!subscriber.queue.isEmpty() || subscriber.closed && !subscriber.completed.get()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    // The watchdog and the sender hand the send over atomically, so each spare thread is given back exactly once.
+    private void endSend(Subscriber subscriber) {
+        if (subscriber.sendStartedAt.getAndSet(NOT_SENDING) == STALLED && stalledSends.getAndDecrement() <= maxStalledSends) {
+            resizeSender(-1);
+        }
+    }
+
+    private synchronized void resizeSender(int delta) {
+        int threads = sender.getCorePoolSize() + delta;
+        if (delta > 0) {
+            sender.setMaximumPoolSize(threads);
+            sender.setCorePoolSize(threads);
+        } else {
+            sender.setCorePoolSize(threads);
+            sender.setMaximumPoolSize(threads);
+        }
+    }
+
+    private boolean isRevoked(VerifiedToken token) {
+        return token.hasSecurityEpoch() && !securityEpochs.isCurrent(token.userId(), token.securityEpoch())
+                || token.jti() != null && tokenRevocations.isRevoked(token.jti());
+    }
+
+    private void remove(Subscriber subscriber) {
+        Set<Subscriber> userSubscribers = subscribers.get(subscriber.userId);
+        if (userSubscribers != null && userSubscribers.remove(subscriber)) {
+            connections.decrementAndGet();
+            subscribers.computeIfPresent(subscriber.userId, (id, current) -> current.isEmpty() ? null : current);
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder toSse(Object message) {
+        if (message == HEARTBEAT) {
+            return SseEmitter.event().comment("heartbeat");
+        }
+        if (message == RESYNC) {
+            return SseEmitter.event().name("resync").data("");
+        }
+        TaskEvent event = (TaskEvent) message;
+        return SseEmitter.event()
+                .name(event.type().name().toLowerCase(Locale.ROOT))
+                .data(event, MediaType.APPLICATION_JSON);
+    }
+
+    private static final class Subscriber {
+        private final Long userId;
+        private final VerifiedToken token;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private final AtomicLong sendStartedAt = new AtomicLong(NOT_SENDING);
+        private volatile boolean closed;
+
+        private Subscriber(Long userId, VerifiedToken token, SseEmitter emitter, BlockingQueue<Object> queue) {
+            this.userId = userId;
+            this.token = token;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
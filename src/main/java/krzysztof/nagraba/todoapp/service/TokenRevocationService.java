@@ -0,0 +1,100 @@
+package krzysztof.nagraba.todoapp.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import krzysztof.nagraba.todoapp.config.BloomFilter;
+import krzysztof.nagraba.todoapp.config.SecurityEpochRegistry;
+import krzysztof.nagraba.todoapp.entity.RevokedToken;
+import krzysztof.nagraba.todoapp.repository.RevokedTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked token ids (jti) kept until the token would have expired anyway. The request path asks
+ * the Bloom filter first and only consults the exact set on a probable hit, so a token that was
+ * never revoked costs a few bit reads.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private record Snapshot(BloomFilter filter, Map<String, LocalDateTime> revoked) {}
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final SecurityEpochRegistry securityEpochs;
+    private final int expectedRevocations;
+    private volatile Snapshot snapshot;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  SecurityEpochRegistry securityEpochs,
+                                  @Value("${security.revocation.expected-size:10000}") int expectedRevocations,
+                                  MeterRegistry meterRegistry) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.securityEpochs = securityEpochs;
+        this.expectedRevocations = expectedRevocations;
+        this.snapshot = new Snapshot(new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE), new ConcurrentHashMap<>());
+
+        Gauge.builder("security.revoked-tokens", this, service -> service.snapshot.revoked().size())
+                .description("Revoked access tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(String jti) {
+        Snapshot current = snapshot;
+        return current.filter().mightContain(jti) && current.revoked().containsKey(jti);
+    }
+
+    @Transactional
+    public synchronized void revoke(String jti, Instant expiresAt) {
+        LocalDateTime expiry = LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault());
+        revokedTokenRepository.save(new RevokedToken(jti, expiry));
+
+        Snapshot current = snapshot;
+        current.revoked().put(jti, expiry);
+        current.filter().put(jti);
+    }
+
+    // Drops expired ids and picks up revocations and epoch bumps (revoke-all, disable) made on other nodes;
+    // the filter is rebuilt so it never fills up.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${security.revocation.compaction-ms:60000}", initialDelayString = "${security.revocation.compaction-ms:60000}")
+    @Transactional
+    public void compact() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = revokedTokenRepository.deleteExpired(now);
+        List<RevokedToken> active = revokedTokenRepository.findAllByExpiresAtAfter(now);
+        securityEpochs.load();
+
+        synchronized (this) {
+            Map<String, LocalDateTime> revoked = new ConcurrentHashMap<>();
+            active.forEach(token -> revoked.put(token.getJti(), token.getExpiresAt()));
+            snapshot.revoked().forEach((jti, expiry) -> {
+                if (expiry.isAfter(now)) {
+                    revoked.putIfAbsent(jti, expiry);
+                }
+            });
+
+            BloomFilter filter = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(filter::put);
+            snapshot = new Snapshot(filter, revoked);
+        }
+
+        if (deleted > 0) {
+            log.info("Compacted revoked tokens: {} expired removed, {} active", deleted, active.size());
+        }
+    }
+}
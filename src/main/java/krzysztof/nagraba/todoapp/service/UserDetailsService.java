@@ -1,24 +1,56 @@
 package krzysztof.nagraba.todoapp.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import krzysztof.nagraba.todoapp.repository.UserRepository;
 import krzysztof.nagraba.todoapp.config.CustomUserDetails;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 public class UserDetailsService implements org.springframework.security.core.userdetails.UserDetailsService {
 
     private final UserRepository userRepository;
 
-    public UserDetailsService(UserRepository userRepository) {
+    // Keyed by normalized email. AuthService evicts on every account change, the TTL bounds staleness across nodes.
+    private final Cache<String, CustomUserDetails> cache;
+
+    public UserDetailsService(UserRepository userRepository,
+                              @Value("${security.user-cache.max-size:10000}") long maxSize,
+                              @Value("${security.user-cache.ttl-seconds:30}") long ttlSeconds,
+                              MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "security.user-details");
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        return userRepository.findByEmail(email.toLowerCase().trim())
+        return cache.get(normalize(email), this::loadFromRepository);
+    }
+
+    public void evict(String email) {
+        cache.invalidate(normalize(email));
+    }
+
+    private CustomUserDetails loadFromRepository(String normalizedEmail) {
+        return userRepository.findByEmail(normalizedEmail)
                 .map(user -> new CustomUserDetails(user.getId(), user.getEmail(), user.getPasswordHash(), user.getRole(), user.isEnabled()))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found."));
     }
+
+    private static String normalize(String email) {
+        return email.toLowerCase().trim();
+    }
 }
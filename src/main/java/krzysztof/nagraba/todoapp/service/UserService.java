@@ -1,12 +1,14 @@
 package krzysztof.nagraba.todoapp.service;
 
 import krzysztof.nagraba.todoapp.entity.User;
+import krzysztof.nagraba.todoapp.entity.dto.SliceResponse;
 import krzysztof.nagraba.todoapp.entity.dto.UserResponse;
 import krzysztof.nagraba.todoapp.exception.UserNotFoundException;
 import krzysztof.nagraba.todoapp.mapper.UserMapper;
 import krzysztof.nagraba.todoapp.repository.UserRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,8 +16,10 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class UserService {
     private final UserRepository userRepository;
-    public UserService(UserRepository userRepository) {
+    private final RowEstimateService rowEstimateService;
+    public UserService(UserRepository userRepository, RowEstimateService rowEstimateService) {
         this.userRepository = userRepository;
+        this.rowEstimateService = rowEstimateService;
     }
 
     @Transactional(readOnly = true)
@@ -26,6 +30,13 @@ public class UserService {
         return users.map(UserMapper::toUserResponse);
     }
 
+    @Transactional(readOnly = true)
+    public SliceResponse<UserResponse> getAllUsersSlice(Pageable pageable, boolean estimateTotal) {
+        Slice<UserResponse> users = userRepository.findAllBy(pageable).map(UserMapper::toUserResponse);
+
+        return SliceResponse.of(users, estimateTotal ? rowEstimateService.users() : null);
+    }
+
     @Transactional(readOnly = true)
     public UserResponse getUserById(Long id) {
         return UserMapper.toUserResponse(userRepository.findById(id).orElseThrow(() -> new UserNotFoundException(id)));
@@ -0,0 +1,7 @@
+-- V10__task_versions.sql
+
+-- Optimistic-locking version of each task, exposed as its ETag.
+alter table tasks add column version bigint not null default 0;
+
+-- Bumped on every write to a user's tasks; the ETag of that user's listings.
+alter table user_task_stats add column revision bigint not null default 0;
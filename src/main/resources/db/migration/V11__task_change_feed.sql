@@ -0,0 +1,55 @@
+-- V11__task_change_feed.sql
+
+-- Every insert, update and delete of a task takes the next value of one sequence, so a client
+-- can ask for "everything after N". change_xid records the writing transaction: readers only
+-- serve rows from transactions older than every transaction still running, which keeps a
+-- cursor from skipping a change whose transaction commits late.
+create sequence task_change_seq;
+
+alter table tasks
+    add column change_seq bigint not null default nextval('task_change_seq'),
+    add column change_xid xid8 not null default pg_current_xact_id();
+
+create function tasks_touch_change() returns trigger as $$
+begin
+    new.change_seq := nextval('task_change_seq');
+    new.change_xid := pg_current_xact_id();
+    return new;
+end;
+$$ language plpgsql;
+
+create trigger trg_tasks_touch_change
+    before update on tasks
+    for each row execute function tasks_touch_change();
+
+-- No foreign key to users: tombstones of a deleted user's tasks are simply pruned with age.
+create table task_tombstones (
+    task_id bigint primary key,
+    user_id bigint not null,
+    change_seq bigint not null default nextval('task_change_seq'),
+    change_xid xid8 not null default pg_current_xact_id(),
+    deleted_at timestamp not null default now()
+);
+
+create function tasks_record_tombstone() returns trigger as $$
+begin
+    insert into task_tombstones (task_id, user_id) values (old.id, old.user_id);
+    return old;
+end;
+$$ language plpgsql;
+
+create trigger trg_tasks_record_tombstone
+    after delete on tasks
+    for each row execute function tasks_record_tombstone();
+
+create index idx_tasks_user_change_seq on tasks(user_id, change_seq);
+create index idx_task_tombstones_user_change_seq on task_tombstones(user_id, change_seq);
+create index idx_task_tombstones_deleted_at on task_tombstones(deleted_at);
+
+-- Highest change_seq whose tombstone has been pruned; older cursors can no longer see every delete.
+create table task_sync_state (
+    id smallint primary key check (id = 1),
+    pruned_through bigint not null
+);
+
+insert into task_sync_state (id, pruned_through) values (1, 0);
@@ -0,0 +1,8 @@
+-- V12__task_open_quadrant_index.sql
+
+-- The partial index from V7 (where status <> 'DONE') is only usable when the planner can prove the
+-- predicate from the query, which it cannot for a bound status parameter under generic plans, nor
+-- for quadrant filters without a status. A plain composite index serves every quadrant filter.
+drop index idx_tasks_user_open_quadrant_created_id;
+
+create index idx_tasks_user_quadrant_created_id on tasks(user_id, urgency, importance, created_date desc, id desc);
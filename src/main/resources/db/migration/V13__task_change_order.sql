@@ -0,0 +1,39 @@
+-- V13__task_change_order.sql
+
+-- Holding back rows by change_xid did not stop a cursor from skipping a change: a transaction's xid is
+-- fixed at its first write, but change_seq is drawn later and per row, so a committed writer could hold
+-- a higher sequence than a lower-xid writer still running. Every writer of a user's tasks now takes a
+-- per-user advisory lock (key = user id, held to the end of the transaction) before drawing a sequence
+-- value. Within one user, sequence order is then commit order and nothing uncommitted is numbered below
+-- what a reader has already seen.
+create or replace function tasks_touch_change() returns trigger as $$
+begin
+    perform pg_advisory_xact_lock(new.user_id);
+    new.change_seq := nextval('task_change_seq');
+    return new;
+end;
+$$ language plpgsql;
+
+drop trigger trg_tasks_touch_change on tasks;
+
+create trigger trg_tasks_touch_change
+    before insert or update on tasks
+    for each row execute function tasks_touch_change();
+
+create or replace function tasks_record_tombstone() returns trigger as $$
+begin
+    perform pg_advisory_xact_lock(old.user_id);
+    insert into task_tombstones (task_id, user_id, change_seq)
+    values (old.id, old.user_id, nextval('task_change_seq'));
+    return old;
+end;
+$$ language plpgsql;
+
+-- The trigger assigns the sequence; a default would be drawn before the lock is taken.
+alter table tasks
+    alter column change_seq drop default,
+    drop column change_xid;
+
+alter table task_tombstones
+    alter column change_seq drop default,
+    drop column change_xid;
@@ -0,0 +1,7 @@
+-- V14__password_hashing_settings.sql
+
+-- The BCrypt cost calibrated by the first node to start, shared by every node afterwards.
+create table password_hashing_settings (
+    id smallint primary key check (id = 1),
+    bcrypt_cost int not null
+);
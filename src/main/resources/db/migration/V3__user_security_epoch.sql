@@ -0,0 +1,4 @@
+-- V3__user_security_epoch.sql
+
+alter table users
+    add column security_epoch bigint not null default 0;
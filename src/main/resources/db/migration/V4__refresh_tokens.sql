@@ -0,0 +1,20 @@
+-- V4__refresh_tokens.sql
+
+create table refresh_tokens (
+    id bigserial primary key,
+    token_hash varchar(64) not null unique,
+    family_id uuid not null,
+    user_id bigint not null,
+    created_at timestamp not null,
+    expires_at timestamp not null,
+    used_at timestamp,
+    revoked_at timestamp,
+
+        constraint fk_refresh_tokens_user
+            foreign key (user_id) references users(id)
+                on delete cascade
+);
+
+create index idx_refresh_tokens_family_id on refresh_tokens(family_id);
+create index idx_refresh_tokens_user_id on refresh_tokens(user_id);
+create index idx_refresh_tokens_expires_at on refresh_tokens(expires_at);
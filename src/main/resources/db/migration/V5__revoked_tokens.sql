@@ -0,0 +1,8 @@
+-- V5__revoked_tokens.sql
+
+create table revoked_tokens (
+    jti varchar(36) primary key,
+    expires_at timestamp not null
+);
+
+create index idx_revoked_tokens_expires_at on revoked_tokens(expires_at);
@@ -0,0 +1,10 @@
+-- V6__task_keyset_indexes.sql
+
+-- Keyset pagination walks tasks by (created_date desc, id desc) within each filter.
+create index idx_tasks_user_created_id on tasks(user_id, created_date desc, id desc);
+create index idx_tasks_status_created_id on tasks(status, created_date desc, id desc);
+create index idx_tasks_created_id on tasks(created_date desc, id desc);
+
+-- Covered by the leading columns of the composite indexes above.
+drop index idx_tasks_user_id;
+drop index idx_tasks_status;
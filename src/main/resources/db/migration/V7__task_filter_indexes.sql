@@ -0,0 +1,12 @@
+-- V7__task_filter_indexes.sql
+
+-- Per-user listings filtered by status, ordered newest first.
+create index idx_tasks_user_status_created_id on tasks(user_id, status, created_date desc, id desc);
+
+-- Eisenhower quadrant filters on open tasks. Done tasks pile up over time and are rarely
+-- filtered by quadrant, so they are left out; status = 'TODO' / 'IN_PROGRESS' implies the predicate.
+create index idx_tasks_user_open_quadrant_created_id on tasks(user_id, urgency, importance, created_date desc, id desc)
+    where status <> 'DONE';
+
+-- Admin listings filtered by quadrant across all users.
+create index idx_tasks_quadrant_created_id on tasks(urgency, importance, created_date desc, id desc);
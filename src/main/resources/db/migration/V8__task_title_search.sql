@@ -0,0 +1,11 @@
+-- V8__task_title_search.sql
+
+-- 'simple' keeps words unstemmed, which suits short titles in mixed languages and prefix matching.
+alter table tasks
+    add column title_search tsvector generated always as (to_tsvector('simple', task_title)) stored;
+
+-- btree_gin lets a single GIN index carry the owner column next to the lexemes,
+-- so a user's search never touches other users' postings.
+create extension if not exists btree_gin;
+
+create index idx_tasks_user_title_search on tasks using gin (user_id, title_search);
@@ -0,0 +1,21 @@
+-- V9__user_task_stats.sql
+
+-- One row per user, kept in step with tasks by the service layer in the same transaction.
+create table user_task_stats (
+    user_id bigint primary key,
+    todo_count bigint not null default 0,
+    in_progress_count bigint not null default 0,
+    done_count bigint not null default 0,
+
+        constraint fk_user_task_stats_user
+            foreign key (user_id) references users(id)
+                on delete cascade
+);
+
+insert into user_task_stats (user_id, todo_count, in_progress_count, done_count)
+select user_id,
+       count(*) filter (where status = 'TODO'),
+       count(*) filter (where status = 'IN_PROGRESS'),
+       count(*) filter (where status = 'DONE')
+from tasks
+group by user_id;
@@ -0,0 +1,65 @@
+package krzysztof.nagraba.todoapp.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BCryptCostCalibratorTest {
+
+    @Mock JdbcTemplate jdbcTemplate;
+
+    @Test
+    void costFor_shouldPickHighestCostWithinTarget() {
+        // 60 ms at cost 10 -> 120 ms at 11 -> 240 ms at 12 -> 480 ms at 13
+        assertThat(BCryptCostCalibrator.costFor(Duration.ofMillis(60), Duration.ofMillis(250), 10, 14)).isEqualTo(12);
+    }
+
+    @Test
+    void costFor_shouldNotGoBelowMinCost_onSlowHardware() {
+        assertThat(BCryptCostCalibrator.costFor(Duration.ofMillis(400), Duration.ofMillis(250), 10, 14)).isEqualTo(10);
+    }
+
+    @Test
+    void costFor_shouldNotExceedMaxCost_onFastHardware() {
+        assertThat(BCryptCostCalibrator.costFor(Duration.ofMillis(1), Duration.ofMillis(250), 10, 14)).isEqualTo(14);
+    }
+
+    @Test
+    void pinnedCost_shouldReuseStoredCost_withoutCalibrating() {
+        // given
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class))).thenReturn(List.of(11));
+
+        // when
+        int cost = BCryptCostCalibrator.pinnedCost(jdbcTemplate, () -> {
+            throw new AssertionError("should not calibrate");
+        });
+
+        // then
+        assertThat(cost).isEqualTo(11);
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void pinnedCost_shouldReturnTheStoredCost_whenAnotherNodeInsertedFirst() {
+        // given
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class))).thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(12);
+
+        // when
+        int cost = BCryptCostCalibrator.pinnedCost(jdbcTemplate, () -> 14);
+
+        // then
+        assertThat(cost).isEqualTo(12);
+        verify(jdbcTemplate).update(contains("on conflict (id) do nothing"), eq(14));
+    }
+}
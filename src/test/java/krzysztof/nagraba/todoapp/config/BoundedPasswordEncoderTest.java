@@ -0,0 +1,97 @@
+package krzysztof.nagraba.todoapp.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import krzysztof.nagraba.todoapp.exception.PasswordHashingBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private BoundedPasswordEncoder encoder;
+
+    private final PasswordEncoder slowDelegate = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "HASH:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.shutdown();
+    }
+
+    @Test
+    void encode_shouldRunOnWorker_andReturnDelegateResult() {
+        // given
+        encoder = new BoundedPasswordEncoder(slowDelegate, 1, 1, Duration.ofSeconds(5), 1, new SimpleMeterRegistry());
+        release.countDown();
+
+        // when + then
+        assertThat(encoder.encode("secret")).isEqualTo("HASH:secret");
+        assertThat(encoder.matches("secret", "HASH:secret")).isTrue();
+    }
+
+    @Test
+    void encode_shouldRejectImmediately_whenQueueIsFull() throws Exception {
+        // given
+        encoder = new BoundedPasswordEncoder(slowDelegate, 1, 1, Duration.ofSeconds(5), 3, new SimpleMeterRegistry());
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        await(() -> encoder.queueDepth() == 1);
+
+        // when + then
+        assertThatThrownBy(() -> encoder.encode("c"))
+                .isInstanceOf(PasswordHashingBusyException.class)
+                .extracting("retryAfterSeconds").isEqualTo(3L);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("HASH:a");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("HASH:b");
+    }
+
+    @Test
+    void encode_shouldGiveUp_afterTimeout() {
+        // given
+        encoder = new BoundedPasswordEncoder(slowDelegate, 1, 1, Duration.ofMillis(50), 1, new SimpleMeterRegistry());
+
+        // when + then
+        assertThatThrownBy(() -> encoder.encode("a"))
+                .isInstanceOf(PasswordHashingBusyException.class);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package krzysztof.nagraba.todoapp.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import krzysztof.nagraba.todoapp.exception.ExportLimitExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ExportLimiterTest {
+
+    SimpleMeterRegistry meterRegistry;
+    ExportLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new ExportLimiter(2, 1, 30, meterRegistry);
+    }
+
+    @Test
+    void acquire_shouldRejectSecondExportOfSameUser_asTooManyRequests() {
+        // given
+        limiter.acquire(1L);
+
+        // when + then
+        assertThatThrownBy(() -> limiter.acquire(1L))
+                .isInstanceOfSatisfying(ExportLimitExceededException.class, e -> assertThat(e.isNodeBusy()).isFalse());
+        assertThat(meterRegistry.get("tasks.export.running").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void acquire_shouldRejectExportsBeyondNodeLimit_asBusy_withoutHoldingTheUsersSlot() {
+        // given
+        ExportLimiter.Permit first = limiter.acquire(1L);
+        limiter.acquire(2L);
+
+        // when + then
+        assertThatThrownBy(() -> limiter.acquire(3L))
+                .isInstanceOfSatisfying(ExportLimitExceededException.class, e -> assertThat(e.isNodeBusy()).isTrue());
+
+        first.close();
+        assertThatCode(() -> limiter.acquire(3L)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void close_shouldReleaseOnlyOnce() {
+        // given
+        ExportLimiter.Permit permit = limiter.acquire(1L);
+        limiter.acquire(2L);
+
+        // when
+        permit.close();
+        permit.close();
+
+        // then
+        assertThat(meterRegistry.get("tasks.export.running").gauge().value()).isEqualTo(1.0);
+        limiter.acquire(1L);
+        assertThatThrownBy(() -> limiter.acquire(3L)).isInstanceOf(ExportLimitExceededException.class);
+    }
+}
@@ -0,0 +1,181 @@
+package krzysztof.nagraba.todoapp.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import krzysztof.nagraba.todoapp.entity.Role;
+import krzysztof.nagraba.todoapp.entity.User;
+import krzysztof.nagraba.todoapp.repository.UserRepository;
+import krzysztof.nagraba.todoapp.service.AuthService;
+import krzysztof.nagraba.todoapp.service.RefreshTokenService;
+import krzysztof.nagraba.todoapp.service.TokenRevocationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthFilterTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("test-secret-test-secret-test-secret-1234".getBytes());
+
+    @Mock UserDetailsService userDetailsService;
+    @Mock SecurityEpochRegistry securityEpochs;
+    @Mock UserRepository userRepository;
+    @Mock PasswordEncoder passwordEncoder;
+    @Mock RefreshTokenService refreshTokenService;
+    @Mock TokenRevocationService tokenRevocations;
+
+    JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRET, 60, 100, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication runFilter(JwtAuthFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks");
+        request.addHeader("Authorization", "Bearer " + token);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void statelessMode_shouldBuildPrincipalFromClaims_withoutLoadingUser() throws Exception {
+        // given
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, userDetailsService, securityEpochs, tokenRevocations, true);
+        String token = jwtService.generateToken("A@B.com", List.of("ADMIN"), 7L, 2L);
+        when(securityEpochs.isCurrent(7L, 2L)).thenReturn(true);
+
+        // when
+        Authentication authentication = runFilter(filter, token);
+
+        // then
+        assertThat(authentication).isNotNull();
+        CustomUserDetails principal = (CustomUserDetails) authentication.getPrincipal();
+        assertThat(principal.getId()).isEqualTo(7L);
+        assertThat(principal.getEmail()).isEqualTo("a@b.com");
+        assertThat(principal.getRole()).isEqualTo(Role.ADMIN);
+
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void shouldRejectToken_whenSecurityEpochIsStale() throws Exception {
+        // given
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, userDetailsService, securityEpochs, tokenRevocations, true);
+        String token = jwtService.generateToken("a@b.com", List.of("USER"), 7L, 0L);
+        when(securityEpochs.isCurrent(7L, 0L)).thenReturn(false);
+
+        // when
+        Authentication authentication = runFilter(filter, token);
+
+        // then
+        assertThat(authentication).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void shouldAcceptToken_withEpochNewerThanRegistry_andRejectOlderOnesFromThenOn() throws Exception {
+        // given: the password was changed on another node, this node has not reloaded yet
+        SecurityEpochRegistry registry = new SecurityEpochRegistry(userRepository);
+        registry.update(7L, 1L);
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, userDetailsService, registry, tokenRevocations, true);
+        String newToken = jwtService.generateToken("a@b.com", List.of("USER"), 7L, 2L);
+        String oldToken = jwtService.generateToken("a@b.com", List.of("USER"), 7L, 1L);
+
+        // when
+        Authentication authentication = runFilter(filter, newToken);
+        SecurityContextHolder.clearContext();
+        Authentication stale = runFilter(filter, oldToken);
+
+        // then
+        assertThat(authentication).isNotNull();
+        assertThat(stale).isNull();
+        assertThat(registry.isCurrent(7L, 2L)).isTrue();
+    }
+
+    @Test
+    void shouldRejectRevokedToken() throws Exception {
+        // given
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, userDetailsService, securityEpochs, tokenRevocations, true);
+        String token = jwtService.generateToken("a@b.com", List.of("USER"), 7L, 0L);
+        String jti = jwtService.verify(token).orElseThrow().jti();
+        when(securityEpochs.isCurrent(7L, 0L)).thenReturn(true);
+        when(tokenRevocations.isRevoked(jti)).thenReturn(true);
+
+        // when
+        Authentication authentication = runFilter(filter, token);
+
+        // then
+        assertThat(authentication).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void defaultMode_shouldLoadUser() throws Exception {
+        // given
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, userDetailsService, securityEpochs, tokenRevocations, false);
+        String token = jwtService.generateToken("a@b.com", List.of("USER"), 7L, 0L);
+        when(securityEpochs.isCurrent(7L, 0L)).thenReturn(true);
+        when(userDetailsService.loadUserByUsername("a@b.com"))
+                .thenReturn(new CustomUserDetails(7L, "a@b.com", "HASH", Role.USER, true));
+
+        // when
+        Authentication authentication = runFilter(filter, token);
+
+        // then
+        assertThat(authentication).isNotNull();
+        verify(userDetailsService).loadUserByUsername("a@b.com");
+    }
+
+    @Test
+    void disabledUser_shouldBeRejectedOnNextRequest_despiteCachedDetails() throws Exception {
+        // given
+        var cachingUserDetailsService = new krzysztof.nagraba.todoapp.service.UserDetailsService(
+                userRepository, 100, 60, new SimpleMeterRegistry());
+        AuthService authService = new AuthService(userRepository, passwordEncoder, jwtService, securityEpochs, cachingUserDetailsService, refreshTokenService, tokenRevocations);
+        JwtAuthFilter filter = new JwtAuthFilter(jwtService, cachingUserDetailsService, securityEpochs, tokenRevocations, false);
+
+        User user = new User("a@b.com", "HASH", Role.USER);
+        ReflectionTestUtils.setField(user, "id", 7L);
+        when(userRepository.findByEmail("a@b.com")).thenReturn(Optional.of(user));
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+        // legacy token without a user id, so only the enabled flag can reject it
+        String token = jwtService.generateToken("a@b.com", List.of("USER"), null, 0L);
+        assertThat(runFilter(filter, token)).isNotNull();
+        SecurityContextHolder.clearContext();
+
+        // when
+        authService.disableUser(7L);
+        Authentication authentication = runFilter(filter, token);
+
+        // then
+        assertThat(authentication).isNull();
+        verify(userRepository, times(2)).findByEmail("a@b.com");
+    }
+}
@@ -0,0 +1,88 @@
+package krzysztof.nagraba.todoapp.config;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("test-secret-test-secret-test-secret-1234".getBytes());
+
+    SimpleMeterRegistry meterRegistry;
+    JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtService(SECRET, 60, 100, meterRegistry);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "jwt.verified-tokens")
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    @Test
+    void verify_shouldReturnSubjectAndRoles_fromSingleParse() {
+        // given
+        String token = jwtService.generateToken("a@b.com", List.of("ADMIN"), 7L, 3L);
+
+        // when
+        VerifiedToken verified = jwtService.verify(token).orElseThrow();
+
+        // then
+        assertThat(verified.subject()).isEqualTo("a@b.com");
+        assertThat(verified.roles()).containsExactly("ADMIN");
+        assertThat(verified.userId()).isEqualTo(7L);
+        assertThat(verified.securityEpoch()).isEqualTo(3L);
+        assertThat(verified.expiresAt()).isNotNull();
+    }
+
+    @Test
+    void verify_shouldServeRepeatedToken_fromCache() {
+        // given
+        String token = jwtService.generateToken("a@b.com", List.of("USER"), 7L, 0L);
+
+        // when
+        jwtService.verify(token);
+        jwtService.verify(token);
+        jwtService.verify(token);
+
+        // then
+        assertThat(cacheGets("miss")).isEqualTo(1);
+        assertThat(cacheGets("hit")).isEqualTo(2);
+    }
+
+    @Test
+    void verify_shouldRejectTamperedToken() {
+        // given
+        String token = jwtService.generateToken("a@b.com", List.of("USER"), 7L, 0L);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        // when + then
+        assertThat(jwtService.verify(tampered)).isEmpty();
+        assertThat(jwtService.isValid(tampered)).isFalse();
+        assertThatThrownBy(() -> jwtService.extractUsername(tampered))
+                .isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void verify_shouldRejectExpiredToken() {
+        // given
+        JwtService expiredIssuer = new JwtService(SECRET, -1, 100, new SimpleMeterRegistry());
+        String token = expiredIssuer.generateToken("a@b.com", List.of("USER"), 7L, 0L);
+
+        // when + then
+        assertThat(jwtService.verify(token)).isEmpty();
+    }
+}
@@ -0,0 +1,123 @@
+package krzysztof.nagraba.todoapp.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @Test
+    void tryAcquire_shouldAllowCapacity_thenRefillOverTime() {
+        // given
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 60, 100, 8, clock::get);
+
+        // when + then
+        assertThat(limiter.tryAcquire("a@b.com")).isTrue();
+        assertThat(limiter.tryAcquire("a@b.com")).isTrue();
+        assertThat(limiter.tryAcquire("a@b.com")).isTrue();
+        assertThat(limiter.tryAcquire("a@b.com")).isFalse();
+        assertThat(limiter.tryAcquire("other@b.com")).isTrue();
+
+        clock.addAndGet(1_000);
+        assertThat(limiter.tryAcquire("a@b.com")).isTrue();
+        assertThat(limiter.tryAcquire("a@b.com")).isFalse();
+    }
+
+    @Test
+    void tryAcquire_shouldRefill_evenWhenCalledMoreOftenThanOneMilliToken() {
+        // given: 1 token per minute accrues a milli-token every 60 ms
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 100, 8, clock::get);
+        assertThat(limiter.tryAcquire("a@b.com")).isTrue();
+
+        // when
+        for (int i = 0; i < 5_999; i++) {
+            clock.addAndGet(10);
+            assertThat(limiter.tryAcquire("a@b.com")).isFalse();
+        }
+        clock.addAndGet(10);
+
+        // then
+        assertThat(limiter.tryAcquire("a@b.com")).isTrue();
+    }
+
+    @Test
+    void tryAcquire_shouldGrantExactlyCapacity_whenOneAccountIsHammeredConcurrently() throws Exception {
+        // given
+        int capacity = 50;
+        int threads = 32;
+        int attemptsPerThread = 1_000;
+        TokenBucketLimiter limiter = new TokenBucketLimiter(capacity, 1, 100, 8, clock::get);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    if (limiter.tryAcquire("victim@b.com")) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        assertThat(granted.get()).isEqualTo(capacity);
+        assertThat(limiter.trackedKeys()).isEqualTo(1);
+    }
+
+    @Test
+    void tryAcquire_shouldStayBounded_whenKeysExceedLimit() {
+        // given
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 10, 4, clock::get);
+
+        // when
+        for (int i = 0; i < 1_000; i++) {
+            limiter.tryAcquire("attacker-" + i);
+        }
+
+        // then
+        assertThat(limiter.trackedKeys()).isEqualTo(10);
+        assertThat(limiter.overflowed()).isEqualTo(990);
+    }
+
+    @Test
+    void evictIdle_shouldRemoveOnlyRefilledBuckets() {
+        // given
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 60, 100, 8, clock::get);
+        limiter.tryAcquire("idle@b.com");
+        clock.addAndGet(5_000);
+        limiter.tryAcquire("busy@b.com");
+        limiter.tryAcquire("busy@b.com");
+
+        // when
+        int evicted = limiter.evictIdle();
+
+        // then
+        assertThat(evicted).isEqualTo(1);
+        assertThat(limiter.trackedKeys()).isEqualTo(1);
+        assertThat(limiter.tryAcquire("busy@b.com")).isFalse();
+    }
+}
@@ -0,0 +1,31 @@
+package krzysztof.nagraba.todoapp.controller;
+
+import krzysztof.nagraba.todoapp.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TaskETagsTest {
+
+    @Test
+    void requiredVersion_shouldReadStrongTag_roundTrippingForTask() {
+        assertThat(TaskETags.requiredVersion(TaskETags.forTask(42))).isEqualTo(42L);
+        assertThat(TaskETags.requiredVersion(" \"7\" ")).isEqualTo(7L);
+    }
+
+    @Test
+    void requiredVersion_shouldBeUnconditional_forAbsentOrWildcard() {
+        assertThat(TaskETags.requiredVersion(null)).isNull();
+        assertThat(TaskETags.requiredVersion("*")).isNull();
+    }
+
+    @Test
+    void requiredVersion_shouldFailPrecondition_forWeakOrForeignTags() {
+        assertThatThrownBy(() -> TaskETags.requiredVersion(TaskETags.forListing(3)))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> TaskETags.requiredVersion("\"abc\""))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> TaskETags.requiredVersion("\"1\", \"2\""))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+}
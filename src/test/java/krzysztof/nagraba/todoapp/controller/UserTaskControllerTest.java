@@ -0,0 +1,135 @@
+package krzysztof.nagraba.todoapp.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import krzysztof.nagraba.todoapp.config.CustomUserDetails;
+import krzysztof.nagraba.todoapp.config.ExportLimiter;
+import krzysztof.nagraba.todoapp.entity.Role;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.TaskDataFormat;
+import krzysztof.nagraba.todoapp.entity.dto.BulkTaskResponse;
+import krzysztof.nagraba.todoapp.exception.GlobalExceptionHandler;
+import krzysztof.nagraba.todoapp.service.TaskChangeService;
+import krzysztof.nagraba.todoapp.service.TaskExportService;
+import krzysztof.nagraba.todoapp.service.TaskImportService;
+import krzysztof.nagraba.todoapp.service.TaskPurgeService;
+import krzysztof.nagraba.todoapp.service.TaskService;
+import krzysztof.nagraba.todoapp.service.TaskStreamHub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class UserTaskControllerTest {
+
+    @Mock TaskService taskService;
+    @Mock TaskChangeService taskChangeService;
+    @Mock TaskStreamHub taskStreamHub;
+    @Mock TaskExportService taskExportService;
+    @Mock TaskImportService taskImportService;
+    @Mock TaskPurgeService taskPurgeService;
+
+    ExportLimiter exportLimiter;
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        exportLimiter = new ExportLimiter(4, 1, 30, new SimpleMeterRegistry());
+        UserTaskController controller = new UserTaskController(taskService, taskChangeService, taskStreamHub,
+                taskExportService, taskImportService, taskPurgeService, exportLimiter);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        CustomUserDetails user = new CustomUserDetails(1L, "me@ex.com", "HASH", Role.USER, true);
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void delete_shouldRouteIdsToBulkDelete() throws Exception {
+        // given
+        when(taskService.deleteMyTasks(List.of(7L, 8L), 1L)).thenReturn(new BulkTaskResponse(List.of(7L), List.of(8L)));
+
+        // when + then
+        mockMvc.perform(delete("/api/tasks").param("ids", "7", "8"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded[0]").value(7));
+        verifyNoInteractions(taskPurgeService);
+    }
+
+    @Test
+    void delete_shouldRouteTaskStatusToPurge() throws Exception {
+        // given
+        when(taskPurgeService.deleteMyTasksByStatus(1L, TaskStatus.DONE)).thenReturn(3L);
+
+        // when + then
+        mockMvc.perform(delete("/api/tasks").param("taskStatus", "DONE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(3));
+        verifyNoInteractions(taskService);
+    }
+
+    @Test
+    void delete_shouldRejectIdsTogetherWithTaskStatus() throws Exception {
+        // when + then
+        mockMvc.perform(delete("/api/tasks").param("ids", "7").param("taskStatus", "DONE"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(taskService, taskPurgeService);
+    }
+
+    @Test
+    void export_shouldReturn429_whileTheUsersPreviousExportIsRunning() throws Exception {
+        // given
+        ExportLimiter.Permit running = exportLimiter.acquire(1L);
+
+        // when + then
+        mockMvc.perform(get("/api/tasks/export"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"));
+        verifyNoInteractions(taskExportService);
+        running.close();
+    }
+
+    @Test
+    void export_shouldGiveThePermitBack_whenTheBodyFinishes() throws Exception {
+        // given
+        MvcResult first = mockMvc.perform(get("/api/tasks/export").param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(first)).andExpect(status().isOk());
+
+        // when + then
+        MvcResult second = mockMvc.perform(get("/api/tasks/export").param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(second)).andExpect(status().isOk());
+        verify(taskExportService, times(2)).exportMyTasks(eq(1L), eq(TaskDataFormat.CSV), any());
+    }
+}
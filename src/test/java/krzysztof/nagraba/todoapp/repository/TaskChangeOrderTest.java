@@ -0,0 +1,108 @@
+package krzysztof.nagraba.todoapp.repository;
+
+import krzysztof.nagraba.todoapp.TestcontainersConfiguration;
+import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import krzysztof.nagraba.todoapp.repository.TaskQueryRepository.ChangedTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.*;
+
+// Runs the V11/V13 triggers on Postgres; each writer uses its own connection so the two transactions interleave.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TestcontainersConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TaskChangeOrderTest {
+
+    @Autowired TaskRepository taskRepository;
+    @Autowired DataSource dataSource;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private Long userId;
+    private Long existingTaskId;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        userId = jdbcTemplate.queryForObject(
+                "insert into users (email, password_hash, role) values (?, 'HASH', 'USER') returning id",
+                Long.class, "change-order-" + System.nanoTime() + "@test.com");
+        existingTaskId = jdbcTemplate.queryForObject(insertTaskSql("Existing"), Long.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void laterWriter_shouldWaitForOpenWriter_soNoChangeIsSkipped() throws Exception {
+        // given
+        long since = taskRepository.findChangedSince(userId, 0, 10).get(0).changeSeq();
+        Long createdId;
+
+        try (Connection updater = dataSource.getConnection(); Connection creator = dataSource.getConnection()) {
+            updater.setAutoCommit(false);
+            creator.setAutoCommit(false);
+
+            // The updater's transaction gets the lower xid, the creator draws its change sequence first and stays open.
+            query(updater, "select pg_current_xact_id()");
+            createdId = query(creator, insertTaskSql("Created"));
+
+            // when
+            Future<?> update = executor.submit(() -> {
+                query(updater, "update tasks set task_title = 'Updated' where id = " + existingTaskId + " returning id");
+                updater.commit();
+                return null;
+            });
+
+            // then
+            assertThatThrownBy(() -> update.get(500, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+            assertThat(taskRepository.findChangedSince(userId, since, 10)).isEmpty();
+
+            creator.commit();
+            update.get(10, TimeUnit.SECONDS);
+        }
+
+        List<ChangedTask> changes = taskRepository.findChangedSince(userId, since, 10);
+        assertThat(changes).extracting(change -> change.task().getId()).containsExactly(createdId, existingTaskId);
+        assertThat(changes).extracting(ChangedTask::task).extracting(TaskResponse::getTaskTitle)
+                .containsExactly("Created", "Updated");
+    }
+
+    private String insertTaskSql(String title) {
+        return "insert into tasks (task_title, status, created_date, urgency, importance, user_id) "
+                + "values ('" + title + "', 'TODO', now(), 'URGENT', 'IMPORTANT', " + userId + ") returning id";
+    }
+
+    private static Long query(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package krzysztof.nagraba.todoapp.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import krzysztof.nagraba.todoapp.entity.*;
+import krzysztof.nagraba.todoapp.entity.dto.TaskCount;
+import krzysztof.nagraba.todoapp.entity.dto.TaskFilter;
+import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class TaskRepositoryTest {
+
+    @Autowired TaskRepository taskRepository;
+    @Autowired TestEntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+
+    private static final LocalDateTime BASE_DATE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private final List<User> owners = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // 10 owners x 3 tasks, so every page mixes rows of different users.
+        for (int i = 0; i < 10; i++) {
+            owners.add(entityManager.persist(new User("user" + i + "@test.com", "HASH", Role.USER)));
+        }
+        for (int i = 0; i < 30; i++) {
+            Task task = new Task();
+            task.setTaskTitle("Task " + i);
+            task.setStatus((i / 10) % 2 == 0 ? TaskStatus.TODO : TaskStatus.DONE);
+            task.setUrgency(i % 3 == 0 ? Urgency.URGENT : Urgency.NOT_URGENT);
+            task.setImportance(i % 5 == 0 ? Importance.IMPORTANT : Importance.NOT_IMPORTANT);
+            task.setOwner(owners.get(i % owners.size()));
+            ReflectionTestUtils.setField(task, "createdDate", BASE_DATE.plusHours(i));
+            entityManager.persist(task);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics().clear();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static Pageable pageable(int size) {
+        return PageRequest.of(0, size, Sort.by("createdDate").descending());
+    }
+
+    @Test
+    void findAllResponses_shouldUseConstantStatementCount_regardlessOfOwnersOnPage() {
+        // when
+        Page<TaskResponse> small = taskRepository.findAllResponses(pageable(5));
+        long smallStatements = statistics().getPrepareStatementCount();
+        statistics().clear();
+
+        Page<TaskResponse> large = taskRepository.findAllResponses(pageable(20));
+        long largeStatements = statistics().getPrepareStatementCount();
+
+        // then
+        assertThat(small.getContent()).hasSize(5);
+        assertThat(large.getContent()).hasSize(20);
+        assertThat(large.getContent()).extracting(TaskResponse::getOwner).doesNotContainNull();
+        assertThat(large.getContent()).extracting(TaskResponse::getOwner).hasSizeGreaterThan(1);
+        assertThat(large.getTotalElements()).isEqualTo(30);
+
+        // one select for the page and one count
+        assertThat(smallStatements).isEqualTo(2);
+        assertThat(largeStatements).isEqualTo(2);
+        assertThat(statistics().getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findResponses_shouldCombineAllCriteria_inOneQuery() {
+        // given
+        TaskFilter filter = new TaskFilter();
+        filter.setStatus(TaskStatus.TODO);
+        filter.setUrgency(Urgency.URGENT);
+        filter.setCreatedFrom(BASE_DATE.plusHours(5));
+        filter.setCreatedTo(BASE_DATE.plusHours(25));
+
+        // when
+        Page<TaskResponse> page = taskRepository.findResponses(null, filter, pageable(10));
+
+        // then
+        assertThat(page.getContent()).extracting(TaskResponse::getTaskTitle).containsExactly("Task 24", "Task 21", "Task 9", "Task 6");
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        // short first page, so no count query
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics().getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findResponses_shouldCountOnlyWhenNeeded_andRespectOwnerScope() {
+        // given
+        TaskFilter todo = new TaskFilter();
+        todo.setStatus(TaskStatus.TODO);
+        TaskFilter urgent = new TaskFilter();
+        urgent.setUrgency(Urgency.URGENT);
+
+        // when
+        Page<TaskResponse> all = taskRepository.findResponses(null, todo, pageable(10));
+        long statements = statistics().getPrepareStatementCount();
+        Page<TaskResponse> own = taskRepository.findResponses(owners.get(1).getId(), urgent, pageable(10));
+
+        // then
+        assertThat(all.getContent()).hasSize(10).extracting(TaskResponse::getStatus).containsOnly(TaskStatus.TODO);
+        assertThat(all.getTotalElements()).isEqualTo(20);
+        assertThat(statements).isEqualTo(2);
+        assertThat(own.getContent()).extracting(TaskResponse::getTaskTitle).containsExactly("Task 21");
+    }
+
+    @Test
+    void findResponsesByOwnerId_shouldReturnOnlyOwnerTasks_inConstantStatements() {
+        // given
+        User owner = owners.get(3);
+
+        // when
+        Page<TaskResponse> all = taskRepository.findResponsesByOwnerId(owner.getId(), pageable(10));
+        Page<TaskResponse> done = taskRepository.findResponsesByOwnerIdAndStatus(owner.getId(), TaskStatus.DONE, pageable(10));
+
+        // then
+        assertThat(all.getContent()).hasSize(3).extracting(TaskResponse::getOwner).containsOnly("user3@test.com");
+        assertThat(done.getContent()).extracting(TaskResponse::getStatus).containsOnly(TaskStatus.DONE);
+        // both pages are shorter than the page size, so Spring Data skips the count query
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics().getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findResponseByIdAndOwnerId_shouldReturnEmpty_whenNotOwned() {
+        // given
+        TaskResponse any = taskRepository.findAllResponses(pageable(1)).getContent().get(0);
+        Long ownerId = owners.stream().filter(u -> u.getEmail().equals(any.getOwner())).findFirst().orElseThrow().getId();
+        Long otherId = owners.stream().filter(u -> !u.getId().equals(ownerId)).findFirst().orElseThrow().getId();
+        statistics().clear();
+
+        // when
+        Optional<TaskResponse> owned = taskRepository.findResponseByIdAndOwnerId(any.getId(), ownerId);
+        Optional<TaskResponse> notOwned = taskRepository.findResponseByIdAndOwnerId(any.getId(), otherId);
+
+        // then
+        assertThat(owned).get().extracting(TaskResponse::getOwner).isEqualTo(any.getOwner());
+        assertThat(notOwned).isEmpty();
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void deleteChunkByOwnerIdAndStatus_shouldDeleteAtMostLimitRows_withoutLoadingEntities() {
+        // given
+        User owner = owners.get(2);
+
+        // when
+        int first = taskRepository.deleteChunkByOwnerIdAndStatus(owner.getId(), TaskStatus.TODO.name(), 1);
+        int second = taskRepository.deleteChunkByOwnerIdAndStatus(owner.getId(), TaskStatus.TODO.name(), 1);
+        int third = taskRepository.deleteChunkByOwnerIdAndStatus(owner.getId(), TaskStatus.TODO.name(), 1);
+
+        // then
+        assertThat(List.of(first, second, third)).containsExactly(1, 1, 0);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics().getEntityLoadCount()).isZero();
+        assertThat(taskRepository.findResponsesByOwnerId(owner.getId(), pageable(10)).getContent())
+                .extracting(TaskResponse::getStatus).containsOnly(TaskStatus.DONE);
+    }
+
+    @Test
+    void keysetQueries_shouldWalkAllRowsInOrder_withoutGapsOrDuplicates() {
+        // given
+        List<TaskResponse> expected = taskRepository.findAllResponses(
+                PageRequest.of(0, 30, Sort.by("createdDate").descending().and(Sort.by("id").descending()))).getContent();
+
+        // when
+        List<TaskResponse> walked = new ArrayList<>(taskRepository.findFirstResponses(Limit.of(7)));
+        while (true) {
+            TaskResponse last = walked.get(walked.size() - 1);
+            List<TaskResponse> next = taskRepository.findResponsesAfter(last.getCreatedDate(), last.getId(), Limit.of(7));
+            if (next.isEmpty()) {
+                break;
+            }
+            walked.addAll(next);
+        }
+
+        // then
+        assertThat(walked).extracting(TaskResponse::getId)
+                .containsExactlyElementsOf(expected.stream().map(TaskResponse::getId).toList());
+    }
+
+    @Test
+    void keysetQueries_shouldRespectOwnerAndStatusFilters() {
+        // given
+        User owner = owners.get(4);
+
+        // when
+        List<TaskResponse> first = taskRepository.findFirstResponsesByOwnerId(owner.getId(), Limit.of(2));
+        TaskResponse last = first.get(1);
+        List<TaskResponse> rest = taskRepository.findResponsesByOwnerIdAfter(owner.getId(), last.getCreatedDate(), last.getId(), Limit.of(2));
+        List<TaskResponse> done = taskRepository.findFirstResponsesByStatus(TaskStatus.DONE, Limit.of(50));
+
+        // then
+        assertThat(first).extracting(TaskResponse::getOwner).containsOnly("user4@test.com");
+        assertThat(rest).hasSize(1).extracting(TaskResponse::getOwner).containsOnly("user4@test.com");
+        assertThat(done).hasSize(10).extracting(TaskResponse::getStatus).containsOnly(TaskStatus.DONE);
+    }
+
+    @Test
+    void streamQueries_shouldReturnEveryRowInKeysetOrder_inOneStatement() {
+        // given
+        User owner = owners.get(5);
+
+        // when
+        List<TaskResponse> all;
+        try (Stream<TaskResponse> stream = taskRepository.streamAllResponses()) {
+            all = stream.toList();
+        }
+        List<TaskResponse> own;
+        try (Stream<TaskResponse> stream = taskRepository.streamResponsesByOwnerId(owner.getId())) {
+            own = stream.toList();
+        }
+
+        // then
+        assertThat(all).hasSize(30).extracting(TaskResponse::getCreatedDate)
+                .isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(own).hasSize(3).extracting(TaskResponse::getOwner).containsOnly("user5@test.com");
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void sliceQueries_shouldSkipCountQuery() {
+        // when
+        Slice<TaskResponse> first = taskRepository.findAllResponsesAsSlice(pageable(10));
+        Slice<TaskResponse> last = taskRepository.findAllResponsesAsSlice(PageRequest.of(2, 10, Sort.by("createdDate").descending()));
+
+        // then
+        assertThat(first.getContent()).hasSize(10);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.hasNext()).isFalse();
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void countByQuadrantAndStatus_shouldAggregateInOneStatement() {
+        // given
+        User owner = owners.get(0);
+
+        // when
+        List<TaskCount> counts = taskRepository.countByQuadrantAndStatus(owner.getId());
+
+        // then
+        // owner 0 has tasks 0 (TODO, URGENT, IMPORTANT), 10 (DONE, NOT_URGENT, IMPORTANT), 20 (TODO, NOT_URGENT, IMPORTANT)
+        assertThat(counts).extracting(TaskCount::getCount).containsOnly(1L);
+        assertThat(counts).hasSize(3);
+        assertThat(statistics().getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics().getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void version_shouldStartAtZero_andAdvanceOnDirtyUpdate() {
+        // given
+        TaskResponse any = taskRepository.findAllResponses(pageable(1)).getContent().get(0);
+        Task task = taskRepository.findById(any.getId()).orElseThrow();
+        Long ownerId = task.getOwner().getId();
+
+        // when
+        long before = taskRepository.findVersionByIdAndOwnerId(task.getId(), ownerId).orElseThrow();
+        task.setTaskTitle("Renamed");
+        entityManager.flush();
+        long after = taskRepository.findVersionByIdAndOwnerId(task.getId(), ownerId).orElseThrow();
+
+        // then
+        assertThat(before).isZero();
+        assertThat(after).isEqualTo(1L);
+        assertThat(taskRepository.findVersionByIdAndOwnerId(task.getId(), ownerId + 1000)).isEmpty();
+    }
+}
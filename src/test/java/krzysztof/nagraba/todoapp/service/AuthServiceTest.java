@@ -1,10 +1,13 @@
 package krzysztof.nagraba.todoapp.service;
 
 import krzysztof.nagraba.todoapp.config.JwtService;
+import krzysztof.nagraba.todoapp.config.SecurityEpochRegistry;
+import krzysztof.nagraba.todoapp.config.VerifiedToken;
 import krzysztof.nagraba.todoapp.entity.Role;
 import krzysztof.nagraba.todoapp.entity.User;
 import krzysztof.nagraba.todoapp.entity.dto.LoginRequest;
 import krzysztof.nagraba.todoapp.entity.dto.RegisterRequest;
+import krzysztof.nagraba.todoapp.entity.dto.TokenResponse;
 import krzysztof.nagraba.todoapp.exception.EmailAlreadyExistsException;
 import krzysztof.nagraba.todoapp.exception.UserNotFoundException;
 import krzysztof.nagraba.todoapp.repository.UserRepository;
@@ -15,6 +18,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +31,10 @@ class AuthServiceTest {
     @Mock UserRepository userRepository;
     @Mock PasswordEncoder passwordEncoder;
     @Mock JwtService jwtService;
+    @Mock SecurityEpochRegistry securityEpochs;
+    @Mock UserDetailsService userDetailsService;
+    @Mock RefreshTokenService refreshTokenService;
+    @Mock TokenRevocationService tokenRevocationService;
 
     @InjectMocks AuthService authService;
 
@@ -67,7 +75,7 @@ class AuthServiceTest {
         assertThat(saved.getRole()).isEqualTo(Role.USER);
         assertThat(saved.isEnabled()).isTrue();
 
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 
     @Test
@@ -82,7 +90,7 @@ class AuthServiceTest {
                 .hasMessage("Email already exists: a@b.com");
 
         verify(userRepository).existsByEmail("a@b.com");
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 
     @Test
@@ -94,20 +102,60 @@ class AuthServiceTest {
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
         when(passwordEncoder.matches("secret", "HASH")).thenReturn(true);
 
-        when(jwtService.generateToken(anyString(), anyList())).thenReturn("TOKEN");
+        when(jwtService.generateToken(anyString(), anyList(), any(), anyLong())).thenReturn("TOKEN");
+        when(refreshTokenService.issue(user)).thenReturn("REFRESH");
 
         // when
-        String token = authService.login(req);
+        TokenResponse response = authService.login(req);
 
         // then
-        assertThat(token).isEqualTo("TOKEN");
+        assertThat(response.getToken()).isEqualTo("TOKEN");
+        assertThat(response.getRefreshToken()).isEqualTo("REFRESH");
 
         verify(userRepository).findByEmail("test@example.com");
+        verify(refreshTokenService).issue(user);
         verify(passwordEncoder).matches("secret", "HASH");
+        verify(passwordEncoder).upgradeEncoding("HASH");
 
-        verify(jwtService).generateToken("  TeSt@Example.com  ", List.of("USER"));
+        verify(jwtService).generateToken("  TeSt@Example.com  ", List.of("USER"), null, 0L);
 
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
+    }
+
+    @Test
+    void login_shouldRehashPassword_whenEncodingIsOutdated() {
+        // given
+        LoginRequest req = loginReq("a@b.com", "secret");
+
+        User user = new User("a@b.com", "OLD_HASH", Role.USER);
+        when(userRepository.findByEmail("a@b.com")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("secret", "OLD_HASH")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("OLD_HASH")).thenReturn(true);
+        when(passwordEncoder.encode("secret")).thenReturn("NEW_HASH");
+        when(jwtService.generateToken(anyString(), anyList(), any(), anyLong())).thenReturn("TOKEN");
+        when(refreshTokenService.issue(user)).thenReturn("REFRESH");
+
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+
+        // when
+        TokenResponse response = authService.login(req);
+
+        // then
+        assertThat(response.getToken()).isEqualTo("TOKEN");
+        verify(refreshTokenService).issue(user);
+
+        verify(userRepository).findByEmail("a@b.com");
+        verify(passwordEncoder).matches("secret", "OLD_HASH");
+        verify(passwordEncoder).upgradeEncoding("OLD_HASH");
+        verify(passwordEncoder).encode("secret");
+        verify(userRepository).save(captor.capture());
+        verify(userDetailsService).evict("a@b.com");
+        verify(jwtService).generateToken("a@b.com", List.of("USER"), null, 0L);
+
+        assertThat(captor.getValue().getPasswordHash()).isEqualTo("NEW_HASH");
+        assertThat(captor.getValue().getSecurityEpoch()).isZero();
+
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 
     @Test
@@ -122,7 +170,7 @@ class AuthServiceTest {
                 .hasMessage("Invalid email!");
 
         verify(userRepository).findByEmail("noone@ex.com");
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 
     @Test
@@ -145,6 +193,74 @@ class AuthServiceTest {
         verifyNoMoreInteractions(userRepository, passwordEncoder);
     }
 
+    @Test
+    void refresh_shouldIssueNewAccessToken_fromRotatedRefreshToken() {
+        // given
+        User user = new User("a@b.com", "HASH", Role.ADMIN);
+        when(refreshTokenService.rotate("OLD_REFRESH")).thenReturn(new RefreshTokenService.Rotation(user, "NEW_REFRESH"));
+        when(jwtService.generateToken("a@b.com", List.of("ADMIN"), null, 0L)).thenReturn("TOKEN");
+
+        // when
+        TokenResponse response = authService.refresh("OLD_REFRESH");
+
+        // then
+        assertThat(response.getToken()).isEqualTo("TOKEN");
+        assertThat(response.getRefreshToken()).isEqualTo("NEW_REFRESH");
+
+        verify(refreshTokenService).rotate("OLD_REFRESH");
+        verify(jwtService).generateToken("a@b.com", List.of("ADMIN"), null, 0L);
+        verifyNoInteractions(passwordEncoder);
+        verifyNoMoreInteractions(userRepository, jwtService, refreshTokenService);
+    }
+
+    @Test
+    void logout_shouldRevokeAccessTokenId_andRefreshTokenFamily() {
+        // given
+        Instant expiresAt = Instant.now().plusSeconds(600);
+        when(jwtService.verify("ACCESS"))
+                .thenReturn(Optional.of(new VerifiedToken("a@b.com", List.of("USER"), 1L, 0L, "JTI", expiresAt)));
+
+        // when
+        authService.logout("ACCESS", "REFRESH");
+
+        // then
+        verify(tokenRevocationService).revoke("JTI", expiresAt);
+        verify(refreshTokenService).revoke("REFRESH");
+    }
+
+    @Test
+    void logout_shouldIgnoreInvalidAccessToken() {
+        // given
+        when(jwtService.verify("garbage")).thenReturn(Optional.empty());
+
+        // when
+        authService.logout("garbage", null);
+
+        // then
+        verifyNoInteractions(tokenRevocationService, refreshTokenService);
+    }
+
+    @Test
+    void revokeAllSessions_shouldBumpEpoch_andRevokeRefreshTokens() {
+        // given
+        User user = new User("a@b.com", "HASH", Role.USER);
+        when(userRepository.findById(4L)).thenReturn(Optional.of(user));
+
+        // when
+        authService.revokeAllSessions(4L);
+
+        // then
+        assertThat(user.getSecurityEpoch()).isEqualTo(1L);
+        assertThat(user.isEnabled()).isTrue();
+
+        verify(userRepository).findById(4L);
+        verify(userRepository).save(user);
+        verify(securityEpochs).update(null, 1L);
+        verify(userDetailsService).evict("a@b.com");
+        verify(refreshTokenService).revokeAll(null);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
+    }
+
     @Test
     void disableUser_shouldSetEnabledFalse_andSave() {
         // given
@@ -162,8 +278,12 @@ class AuthServiceTest {
 
         User saved = captor.getValue();
         assertThat(saved.isEnabled()).isFalse();
+        assertThat(saved.getSecurityEpoch()).isEqualTo(1L);
+        verify(securityEpochs).update(null, 1L);
+        verify(userDetailsService).evict("a@b.com");
+        verify(refreshTokenService).revokeAll(null);
 
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 
     @Test
@@ -184,8 +304,9 @@ class AuthServiceTest {
 
         User saved = captor.getValue();
         assertThat(saved.isEnabled()).isTrue();
+        verify(userDetailsService).evict("a@b.com");
 
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 
     @Test
@@ -198,7 +319,7 @@ class AuthServiceTest {
                 .isInstanceOf(UserNotFoundException.class);
 
         verify(userRepository).findById(99L);
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 
     @Test
@@ -222,8 +343,12 @@ class AuthServiceTest {
         verify(userRepository).save(captor.capture());
 
         assertThat(captor.getValue().getPasswordHash()).isEqualTo("NEW_HASH");
+        assertThat(captor.getValue().getSecurityEpoch()).isEqualTo(1L);
+        verify(securityEpochs).update(null, 1L);
+        verify(userDetailsService).evict("a@b.com");
+        verify(refreshTokenService).revokeAll(null);
 
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 
     @Test
@@ -242,7 +367,7 @@ class AuthServiceTest {
         verify(passwordEncoder).matches("wrong", "OLD_HASH");
         verify(userRepository, never()).save(any());
         verify(passwordEncoder, never()).encode(anyString());
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 
     @Test
@@ -261,7 +386,10 @@ class AuthServiceTest {
         verify(userRepository).save(captor.capture());
 
         assertThat(captor.getValue().getRole()).isEqualTo(Role.ADMIN);
+        assertThat(captor.getValue().getSecurityEpoch()).isEqualTo(1L);
+        verify(securityEpochs).update(null, 1L);
+        verify(userDetailsService).evict("a@b.com");
 
-        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService);
+        verifyNoMoreInteractions(userRepository, passwordEncoder, jwtService, securityEpochs, userDetailsService, refreshTokenService);
     }
 }
@@ -0,0 +1,144 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.config.TokenDigests;
+import krzysztof.nagraba.todoapp.entity.RefreshToken;
+import krzysztof.nagraba.todoapp.entity.Role;
+import krzysztof.nagraba.todoapp.entity.User;
+import krzysztof.nagraba.todoapp.exception.InvalidRefreshTokenException;
+import krzysztof.nagraba.todoapp.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock RefreshTokenRepository refreshTokenRepository;
+
+    RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, 30);
+    }
+
+    private static User user(boolean enabled) {
+        User user = new User("a@b.com", "HASH", Role.USER);
+        user.setEnabled(enabled);
+        ReflectionTestUtils.setField(user, "id", 3L);
+        return user;
+    }
+
+    private static RefreshToken storedToken(String raw, UUID familyId, User user) {
+        RefreshToken token = new RefreshToken(TokenDigests.sha256Hex(raw), familyId, user,
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(29));
+        ReflectionTestUtils.setField(token, "id", 11L);
+        return token;
+    }
+
+    @Test
+    void issue_shouldStoreOnlyHashOfOpaqueToken() {
+        // given
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+
+        // when
+        String raw = refreshTokenService.issue(user(true));
+
+        // then
+        verify(refreshTokenRepository).save(captor.capture());
+        RefreshToken saved = captor.getValue();
+        assertThat(saved.getTokenHash()).isEqualTo(TokenDigests.sha256Hex(raw)).isNotEqualTo(raw);
+        assertThat(saved.getExpiresAt()).isAfter(LocalDateTime.now().plusDays(29));
+    }
+
+    @Test
+    void rotate_shouldMarkTokenUsed_andIssueNextTokenInSameFamily() {
+        // given
+        UUID family = UUID.randomUUID();
+        User user = user(true);
+        when(refreshTokenRepository.findByTokenHashWithUser(TokenDigests.sha256Hex("raw")))
+                .thenReturn(Optional.of(storedToken("raw", family, user)));
+        when(refreshTokenRepository.markUsed(eq(11L), any())).thenReturn(1);
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+
+        // when
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate("raw");
+
+        // then
+        assertThat(rotation.user()).isSameAs(user);
+        assertThat(rotation.refreshToken()).isNotEqualTo("raw");
+
+        verify(refreshTokenRepository).save(captor.capture());
+        assertThat(captor.getValue().getFamilyId()).isEqualTo(family);
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void rotate_shouldRevokeFamily_whenUsedTokenIsReplayed() {
+        // given
+        UUID family = UUID.randomUUID();
+        RefreshToken used = storedToken("raw", family, user(true));
+        ReflectionTestUtils.setField(used, "usedAt", LocalDateTime.now().minusMinutes(5));
+        when(refreshTokenRepository.findByTokenHashWithUser(TokenDigests.sha256Hex("raw"))).thenReturn(Optional.of(used));
+
+        // when + then
+        assertThatThrownBy(() -> refreshTokenService.rotate("raw"))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+
+        verify(refreshTokenRepository).revokeFamily(eq(family), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_shouldRevokeFamily_whenConcurrentRefreshWonTheRace() {
+        // given
+        UUID family = UUID.randomUUID();
+        when(refreshTokenRepository.findByTokenHashWithUser(TokenDigests.sha256Hex("raw")))
+                .thenReturn(Optional.of(storedToken("raw", family, user(true))));
+        when(refreshTokenRepository.markUsed(eq(11L), any())).thenReturn(0);
+
+        // when + then
+        assertThatThrownBy(() -> refreshTokenService.rotate("raw"))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+
+        verify(refreshTokenRepository).revokeFamily(eq(family), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_shouldReject_whenUserDisabled() {
+        // given
+        UUID family = UUID.randomUUID();
+        when(refreshTokenRepository.findByTokenHashWithUser(TokenDigests.sha256Hex("raw")))
+                .thenReturn(Optional.of(storedToken("raw", family, user(false))));
+        when(refreshTokenRepository.markUsed(eq(11L), any())).thenReturn(1);
+
+        // when + then
+        assertThatThrownBy(() -> refreshTokenService.rotate("raw"))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+
+        verify(refreshTokenRepository).revokeFamily(eq(family), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_shouldReject_unknownToken() {
+        // given
+        when(refreshTokenRepository.findByTokenHashWithUser(anyString())).thenReturn(Optional.empty());
+
+        // when + then
+        assertThatThrownBy(() -> refreshTokenService.rotate("nope"))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+    }
+}
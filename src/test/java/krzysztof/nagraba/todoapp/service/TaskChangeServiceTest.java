@@ -0,0 +1,131 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.Importance;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.TaskTombstone;
+import krzysztof.nagraba.todoapp.entity.Urgency;
+import krzysztof.nagraba.todoapp.entity.dto.TaskChangesResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import krzysztof.nagraba.todoapp.exception.ResyncRequiredException;
+import krzysztof.nagraba.todoapp.repository.TaskQueryRepository.ChangedTask;
+import krzysztof.nagraba.todoapp.repository.TaskRepository;
+import krzysztof.nagraba.todoapp.repository.TaskTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskChangeServiceTest {
+
+    @Mock TaskRepository taskRepository;
+    @Mock TaskTombstoneRepository taskTombstoneRepository;
+
+    TaskChangeService taskChangeService;
+
+    @BeforeEach
+    void setUp() {
+        taskChangeService = new TaskChangeService(taskRepository, taskTombstoneRepository, 30);
+    }
+
+    @Test
+    void getChanges_shouldMergeUpsertsAndDeletesInSequenceOrder_andStopAtLimit() {
+        // given
+        when(taskTombstoneRepository.findPrunedThrough()).thenReturn(0L);
+        when(taskRepository.findChangedSince(1L, 10L, 4)).thenReturn(List.of(changed(100L, 11), changed(101L, 14)));
+        when(taskTombstoneRepository.findDeletedSince(1L, 10L, 4)).thenReturn(List.of(tombstone(50L, 12), tombstone(51L, 15)));
+
+        // when
+        TaskChangesResponse result = taskChangeService.getChanges(1L, 10L, 3);
+
+        // then
+        assertThat(result.getUpserts()).extracting(TaskResponse::getId).containsExactly(100L, 101L);
+        assertThat(result.getDeletedIds()).containsExactly(50L);
+        assertThat(result.getCursor()).isEqualTo(14L);
+        assertThat(result.isHasMore()).isTrue();
+    }
+
+    @Test
+    void getChanges_shouldKeepCursor_whenNothingChanged() {
+        // given
+        when(taskTombstoneRepository.findPrunedThrough()).thenReturn(0L);
+        when(taskRepository.findChangedSince(1L, 42L, 501)).thenReturn(List.of());
+        when(taskTombstoneRepository.findDeletedSince(1L, 42L, 501)).thenReturn(List.of());
+
+        // when
+        TaskChangesResponse result = taskChangeService.getChanges(1L, 42L, 500);
+
+        // then
+        assertThat(result.getUpserts()).isEmpty();
+        assertThat(result.getDeletedIds()).isEmpty();
+        assertThat(result.getCursor()).isEqualTo(42L);
+        assertThat(result.isHasMore()).isFalse();
+    }
+
+    @Test
+    void getChanges_shouldRequireResync_whenCursorIsOlderThanPrunedTombstones() {
+        // given
+        when(taskTombstoneRepository.findPrunedThrough()).thenReturn(100L);
+
+        // when / then
+        assertThatThrownBy(() -> taskChangeService.getChanges(1L, 99L, 10))
+                .isInstanceOf(ResyncRequiredException.class);
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    void getChanges_shouldNotRequireResync_forInitialSync() {
+        // given
+        when(taskRepository.findChangedSince(1L, 0L, 11)).thenReturn(List.of(changed(100L, 150)));
+        when(taskTombstoneRepository.findDeletedSince(1L, 0L, 11)).thenReturn(List.of());
+
+        // when
+        TaskChangesResponse result = taskChangeService.getChanges(1L, 0L, 10);
+
+        // then
+        assertThat(result.getCursor()).isEqualTo(150L);
+        verify(taskTombstoneRepository, never()).findPrunedThrough();
+    }
+
+    @Test
+    void getChanges_shouldRejectLimitOutOfRange() {
+        // when / then
+        assertThatThrownBy(() -> taskChangeService.getChanges(1L, 0L, TaskChangeService.MAX_CHANGES_LIMIT + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(taskRepository, taskTombstoneRepository);
+    }
+
+    @Test
+    void pruneTombstones_shouldDeleteTombstonesOlderThanRetention() {
+        // when
+        taskChangeService.pruneTombstones();
+
+        // then
+        verify(taskTombstoneRepository).pruneOlderThan(any(LocalDateTime.class));
+        verifyNoMoreInteractions(taskTombstoneRepository);
+    }
+
+    private static ChangedTask changed(Long id, long changeSeq) {
+        TaskResponse task = new TaskResponse(id, "Task " + id, TaskStatus.TODO, LocalDateTime.now(),
+                Urgency.NOT_URGENT, Importance.NOT_IMPORTANT, "user@example.com");
+        return new ChangedTask(task, changeSeq);
+    }
+
+    private static TaskTombstone tombstone(Long taskId, long changeSeq) {
+        TaskTombstone tombstone = new TaskTombstone();
+        ReflectionTestUtils.setField(tombstone, "taskId", taskId);
+        ReflectionTestUtils.setField(tombstone, "userId", 1L);
+        ReflectionTestUtils.setField(tombstone, "changeSeq", changeSeq);
+        return tombstone;
+    }
+}
@@ -0,0 +1,96 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.Importance;
+import krzysztof.nagraba.todoapp.entity.TaskDataFormat;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.Urgency;
+import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import krzysztof.nagraba.todoapp.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskExportServiceTest {
+
+    @Mock TaskRepository taskRepository;
+
+    TaskExportService taskExportService;
+
+    @BeforeEach
+    void setUp() {
+        taskExportService = new TaskExportService(taskRepository, JsonMapper.builder().build());
+    }
+
+    @Test
+    void exportMyTasks_shouldWriteOneJsonObjectPerLine_andCloseTheCursor() throws Exception {
+        // given
+        AtomicBoolean closed = new AtomicBoolean();
+        when(taskRepository.streamResponsesByOwnerId(1L))
+                .thenReturn(Stream.of(task(1L, "First"), task(2L, "Second")).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        taskExportService.exportMyTasks(1L, TaskDataFormat.NDJSON, out);
+
+        // then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{").contains("\"id\":1", "\"taskTitle\":\"First\"");
+        assertThat(lines[1]).contains("\"id\":2", "\"owner\":\"me@ex.com\"");
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void exportAllTasks_shouldWriteCsvWithHeader_andQuoteSpecialCharacters() throws Exception {
+        // given
+        when(taskRepository.streamAllResponses()).thenReturn(Stream.of(task(1L, "Buy milk, eggs"), task(2L, "Say \"hi\"")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        taskExportService.exportAllTasks(null, TaskDataFormat.CSV, out);
+
+        // then
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(TaskExportService.CSV_HEADER
+                + "1,\"Buy milk, eggs\",TODO,2025-01-02T10:00,URGENT,NOT_IMPORTANT,me@ex.com\n"
+                + "2,\"Say \"\"hi\"\"\",TODO,2025-01-02T10:00,URGENT,NOT_IMPORTANT,me@ex.com\n");
+        verify(taskRepository).streamAllResponses();
+        verifyNoMoreInteractions(taskRepository);
+    }
+
+    @Test
+    void csvField_shouldNeutraliseFormulas() {
+        assertThat(TaskExportService.csvField("=SUM(A1)")).isEqualTo("'=SUM(A1)");
+        assertThat(TaskExportService.csvField("\tcmd")).isEqualTo("'\tcmd");
+        assertThat(TaskExportService.csvField("\rcmd")).isEqualTo("\"'\rcmd\"");
+        assertThat(TaskExportService.csvField("'=quoted")).isEqualTo("''=quoted");
+        assertThat(TaskExportService.csvField("'plain")).isEqualTo("'plain");
+        assertThat(TaskExportService.csvField("plain")).isEqualTo("plain");
+    }
+
+    @Test
+    void unguardFormula_shouldUndoCsvFieldGuard() {
+        for (String title : new String[] {"-".repeat(50), "+1", "@mention", "\tcmd", "'=quoted", "''-x", "'plain", "plain", "'"}) {
+            String exported = TaskExportService.csvField(title);
+            String unquoted = exported.startsWith("\"") ? exported.substring(1, exported.length() - 1) : exported;
+            assertThat(TaskExportService.unguardFormula(unquoted)).isEqualTo(title);
+        }
+    }
+
+    private static TaskResponse task(Long id, String title) {
+        return new TaskResponse(id, title, TaskStatus.TODO, LocalDateTime.of(2025, 1, 2, 10, 0),
+                Urgency.URGENT, Importance.NOT_IMPORTANT, "me@ex.com");
+    }
+}
@@ -0,0 +1,222 @@
+package krzysztof.nagraba.todoapp.service;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import krzysztof.nagraba.todoapp.entity.Importance;
+import krzysztof.nagraba.todoapp.entity.TaskDataFormat;
+import krzysztof.nagraba.todoapp.entity.Urgency;
+import krzysztof.nagraba.todoapp.entity.dto.CreateTaskDto;
+import krzysztof.nagraba.todoapp.exception.UserNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskImportServiceTest {
+
+    @Mock TaskService taskService;
+
+    ValidatorFactory validatorFactory;
+    TaskImportService taskImportService;
+    List<List<String>> chunks;
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        taskImportService = new TaskImportService(taskService, validatorFactory.getValidator(), JsonMapper.builder().build(), 2, 1000);
+        // The service reuses its chunk list, so capture a copy of what each call saw.
+        chunks = new ArrayList<>();
+        lenient().when(taskService.importMyTasks(eq(1L), anyList())).thenAnswer(invocation -> {
+            List<CreateTaskDto> chunk = invocation.getArgument(1);
+            chunks.add(chunk.stream().map(CreateTaskDto::getTaskTitle).toList());
+            return (long) chunk.size();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void importMyTasks_shouldLoadValidNdjsonRowsInChunks_andReportRejectedRows() throws Exception {
+        // given
+        String input = """
+                {"taskTitle":"First","urgency":"URGENT"}
+                {"taskTitle":"x"}
+
+                {"taskTitle":"Second"}
+                not json
+                {"taskTitle":"Third","importance":"IMPORTANT"}
+                """;
+
+        // when
+        String report = run(TaskDataFormat.NDJSON, input);
+
+        // then
+        assertThat(chunks).containsExactly(List.of("First", "Second"), List.of("Third"));
+        assertThat(report.split("\n")).containsExactly(
+                "{\"type\":\"error\",\"row\":2,\"errors\":[\"taskTitle: size must be between 3 and 50\"]}",
+                "{\"type\":\"progress\",\"imported\":2,\"rejected\":1}",
+                "{\"type\":\"error\",\"row\":4,\"errors\":[\"Malformed row.\"]}",
+                "{\"type\":\"done\",\"imported\":3,\"rejected\":2}");
+    }
+
+    @Test
+    void importMyTasks_shouldParseQuotedCsvFields_byHeaderName() throws Exception {
+        // given
+        String input = "Importance,title\n"
+                + "important,\"Buy milk, eggs\"\n"
+                + ",\"Say \"\"hi\"\"\nto everyone\"\n";
+
+        // when
+        String report = run(TaskDataFormat.CSV, input);
+
+        // then
+        assertThat(chunks).containsExactly(List.of("Buy milk, eggs", "Say \"hi\"\nto everyone"));
+        assertThat(report).endsWith("{\"type\":\"done\",\"imported\":2,\"rejected\":0}\n");
+    }
+
+    @Test
+    void importMyTasks_shouldReadExportedCsvBack_withFormulaGuardRemoved() throws Exception {
+        // given
+        String dashes = "-".repeat(50);
+        String input = TaskExportService.CSV_HEADER
+                + "1," + TaskExportService.csvField(dashes) + ",TODO,2025-01-02T10:00,URGENT,IMPORTANT,me@ex.com\n"
+                + "2," + TaskExportService.csvField("\rcarriage") + ",TODO,2025-01-02T10:00,URGENT,IMPORTANT,me@ex.com\n"
+                + "3," + TaskExportService.csvField("'=kept") + ",TODO,2025-01-02T10:00,URGENT,IMPORTANT,me@ex.com\n";
+
+        // when
+        String report = run(TaskDataFormat.CSV, input);
+
+        // then
+        assertThat(chunks).containsExactly(List.of(dashes, "\rcarriage"), List.of("'=kept"));
+        assertThat(report).endsWith("{\"type\":\"done\",\"imported\":3,\"rejected\":0}\n");
+    }
+
+    @Test
+    void importMyTasks_shouldFail_whenCsvHeaderHasNoTitle() throws Exception {
+        // when
+        String report = run(TaskDataFormat.CSV, "urgency,importance\nURGENT,IMPORTANT\n");
+
+        // then
+        assertThat(report).contains("\"type\":\"failed\"", "taskTitle column");
+        verifyNoInteractions(taskService);
+    }
+
+    @Test
+    void importMyTasks_shouldReportFailure_andKeepCommittedCount_whenChunkFails() throws Exception {
+        // given
+        when(taskService.importMyTasks(eq(1L), anyList()))
+                .thenReturn(2L)
+                .thenThrow(new UserNotFoundException(1L));
+
+        // when
+        String report = run(TaskDataFormat.NDJSON, "{\"taskTitle\":\"One\"}\n{\"taskTitle\":\"Two\"}\n{\"taskTitle\":\"Three\"}\n");
+
+        // then
+        assertThat(report).contains("{\"type\":\"failed\",\"imported\":2,\"rejected\":0");
+    }
+
+    @Test
+    void importMyTasks_shouldHideDatabaseErrors_fromTheReport() throws Exception {
+        // given
+        when(taskService.importMyTasks(eq(1L), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("FATAL: password authentication failed for user \"app\""));
+
+        // when
+        String report = run(TaskDataFormat.NDJSON, "{\"taskTitle\":\"One\"}\n");
+
+        // then
+        assertThat(report).isEqualTo("{\"type\":\"failed\",\"imported\":0,\"rejected\":0,\"message\":\"Import failed.\"}\n");
+    }
+
+    @Test
+    void importMyTasks_shouldRejectOverlongRows_withoutLosingTheNextRow() throws Exception {
+        // given
+        String tooLong = "x".repeat(TaskImportService.MAX_RECORD_LENGTH * 4);
+        String ndjson = "{\"taskTitle\":\"" + tooLong + "\"}\n{\"taskTitle\":\"After json\"}\n";
+        String csv = "taskTitle\n" + tooLong + "\nAfter csv\n";
+
+        // when
+        String ndjsonReport = run(TaskDataFormat.NDJSON, ndjson);
+        String csvReport = run(TaskDataFormat.CSV, csv);
+
+        // then
+        assertThat(chunks).containsExactly(List.of("After json"), List.of("After csv"));
+        assertThat(ndjsonReport).startsWith("{\"type\":\"error\",\"row\":1,\"errors\":[\"Malformed row.\"]}\n");
+        assertThat(csvReport).startsWith("{\"type\":\"error\",\"row\":1,\"errors\":[\"Malformed row.\"]}\n");
+    }
+
+    @Test
+    void importMyTasks_shouldSkipWholeOverlongQuotedCsvRecord_acrossLineBreaks() throws Exception {
+        // given: the oversized title spans lines that would read as rows of their own
+        String fragment = "Fragment row,URGENT,IMPORTANT\n";
+        String title = "x".repeat(TaskImportService.MAX_RECORD_LENGTH) + "\n" + fragment.repeat(3) + "say \"\"hi\"\"\r\n" + fragment;
+        String csv = "taskTitle,urgency,importance\n\"" + title + "\",URGENT,IMPORTANT\nAfter csv,URGENT,IMPORTANT\n";
+
+        // when
+        String report = run(TaskDataFormat.CSV, csv);
+
+        // then
+        assertThat(chunks).containsExactly(List.of("After csv"));
+        assertThat(report.split("\n")).containsExactly(
+                "{\"type\":\"error\",\"row\":1,\"errors\":[\"Malformed row.\"]}",
+                "{\"type\":\"done\",\"imported\":1,\"rejected\":1}");
+    }
+
+    @Test
+    void importMyTasks_shouldRejectBodyWithoutLineBreaks_asOneRow() throws Exception {
+        // when
+        String report = run(TaskDataFormat.NDJSON, "{".repeat(1_000_000));
+
+        // then
+        assertThat(report.split("\n")).containsExactly(
+                "{\"type\":\"error\",\"row\":1,\"errors\":[\"Malformed row.\"]}",
+                "{\"type\":\"done\",\"imported\":0,\"rejected\":1}");
+        verifyNoInteractions(taskService);
+    }
+
+    @Test
+    void importMyTasks_shouldMapCsvEnumsCaseInsensitively() throws Exception {
+        // given
+        String input = "taskTitle,urgency,importance\nWrite report,urgent,NOT_IMPORTANT\n";
+        List<CreateTaskDto> captured = new ArrayList<>();
+        when(taskService.importMyTasks(eq(1L), anyList())).thenAnswer(invocation -> {
+            List<CreateTaskDto> chunk = invocation.getArgument(1);
+            captured.addAll(chunk);
+            return (long) chunk.size();
+        });
+
+        // when
+        run(TaskDataFormat.CSV, input);
+
+        // then
+        assertThat(captured).singleElement().satisfies(task -> {
+            assertThat(task.getUrgency()).isEqualTo(Urgency.URGENT);
+            assertThat(task.getImportance()).isEqualTo(Importance.NOT_IMPORTANT);
+        });
+    }
+
+    private String run(TaskDataFormat format, String input) throws Exception {
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        taskImportService.importMyTasks(1L, format, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), report);
+        return report.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,52 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskPurgeServiceTest {
+
+    @Mock TaskService taskService;
+
+    TaskPurgeService taskPurgeService;
+
+    @BeforeEach
+    void setUp() {
+        taskPurgeService = new TaskPurgeService(taskService, 100);
+    }
+
+    @Test
+    void deleteMyTasksByStatus_shouldRepeatChunks_untilOneComesBackShort() {
+        // given
+        when(taskService.deleteMyTasksByStatusChunk(1L, TaskStatus.DONE, 100)).thenReturn(100, 100, 42);
+
+        // when
+        long deleted = taskPurgeService.deleteMyTasksByStatus(1L, TaskStatus.DONE);
+
+        // then
+        assertThat(deleted).isEqualTo(242);
+        verify(taskService, times(3)).deleteMyTasksByStatusChunk(1L, TaskStatus.DONE, 100);
+        verifyNoMoreInteractions(taskService);
+    }
+
+    @Test
+    void deleteMyTasksByStatus_shouldStopAfterOneCall_whenNothingMatches() {
+        // given
+        when(taskService.deleteMyTasksByStatusChunk(1L, TaskStatus.TODO, 100)).thenReturn(0);
+
+        // when
+        long deleted = taskPurgeService.deleteMyTasksByStatus(1L, TaskStatus.TODO);
+
+        // then
+        assertThat(deleted).isZero();
+        verify(taskService).deleteMyTasksByStatusChunk(1L, TaskStatus.TODO, 100);
+        verifyNoMoreInteractions(taskService);
+    }
+}
@@ -2,20 +2,36 @@ package krzysztof.nagraba.todoapp.service;
 
 import krzysztof.nagraba.todoapp.entity.*;
 import krzysztof.nagraba.todoapp.entity.*;
+import krzysztof.nagraba.todoapp.entity.dto.BulkTaskResponse;
 import krzysztof.nagraba.todoapp.entity.dto.CreateTaskDto;
+import krzysztof.nagraba.todoapp.entity.dto.CursorPage;
+import krzysztof.nagraba.todoapp.entity.dto.QuadrantSummary;
+import krzysztof.nagraba.todoapp.entity.dto.SliceResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskCount;
+import krzysztof.nagraba.todoapp.entity.dto.TaskCursor;
+import krzysztof.nagraba.todoapp.entity.dto.TaskEvent;
+import krzysztof.nagraba.todoapp.entity.dto.TaskFilter;
 import krzysztof.nagraba.todoapp.entity.dto.TaskResponse;
+import krzysztof.nagraba.todoapp.entity.dto.TaskSummaryResponse;
 import krzysztof.nagraba.todoapp.entity.dto.UpdateTaskDto;
+import krzysztof.nagraba.todoapp.exception.PreconditionFailedException;
 import krzysztof.nagraba.todoapp.exception.TaskNotFoundException;
 import krzysztof.nagraba.todoapp.exception.UserNotFoundException;
+import krzysztof.nagraba.todoapp.repository.TaskQueryRepository.AffectedTask;
+import krzysztof.nagraba.todoapp.repository.TaskQueryRepository.ConditionalUpdate;
 import krzysztof.nagraba.todoapp.repository.TaskRepository;
 import krzysztof.nagraba.todoapp.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -26,6 +42,9 @@ class TaskServiceTest {
 
     @Mock TaskRepository taskRepository;
     @Mock UserRepository userRepository;
+    @Mock RowEstimateService rowEstimateService;
+    @Mock TaskStatsService taskStatsService;
+    @Mock TaskEventPublisher taskEventPublisher;
 
     @InjectMocks TaskService taskService;
 
@@ -49,8 +68,13 @@ class TaskServiceTest {
         return t;
     }
 
-    private static Page<Task> pageOf(Task... tasks) {
-        return new PageImpl<>(java.util.List.of(tasks));
+    private static TaskResponse response(Long id, TaskStatus status, String owner) {
+        return new TaskResponse(id, "T" + id, status, LocalDateTime.of(2025, 1, 1, 12, 0),
+                Urgency.NOT_URGENT, Importance.NOT_IMPORTANT, owner);
+    }
+
+    private static Page<TaskResponse> responsePageOf(TaskResponse... responses) {
+        return new PageImpl<>(java.util.List.of(responses));
     }
 
     private static CreateTaskDto createDto(String title) {
@@ -72,44 +96,168 @@ class TaskServiceTest {
 
 
     @Test
-    void getAllTasks_shouldCallFindByStatus_whenStatusProvided() {
+    void getAllTasks_shouldUseDynamicQuery_whenFilterHasCriteria() {
         // given
-        User owner = userWithEmail("a@b.com");
-        Task t1 = task(1L, "T1", TaskStatus.TODO, owner);
+        TaskFilter filter = new TaskFilter();
+        filter.setStatus(TaskStatus.TODO);
+        filter.setUrgency(Urgency.URGENT);
 
-        when(taskRepository.findByStatus(eq(TaskStatus.TODO), any(Pageable.class)))
-                .thenReturn(pageOf(t1));
+        when(taskRepository.findResponses(isNull(), same(filter), any(Pageable.class)))
+                .thenReturn(responsePageOf(response(1L, TaskStatus.TODO, "a@b.com")));
 
         // when
-        Page<TaskResponse> result = taskService.getAllTasks(TaskStatus.TODO, pageable());
+        Page<TaskResponse> result = taskService.getAllTasks(filter, pageable());
 
         // then
         assertThat(result.getTotalElements()).isEqualTo(1);
         assertThat(result.getContent().get(0).getId()).isEqualTo(1L);
         assertThat(result.getContent().get(0).getOwner()).isEqualTo("a@b.com");
 
-        verify(taskRepository).findByStatus(eq(TaskStatus.TODO), any(Pageable.class));
-        verify(taskRepository, never()).findAll(any(Pageable.class));
+        verify(taskRepository).findResponses(isNull(), same(filter), any(Pageable.class));
+        verify(taskRepository, never()).findAllResponses(any(Pageable.class));
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
     @Test
-    void getAllTasks_shouldCallFindAll_whenStatusNull() {
+    void getAllTasks_shouldCallFindAllResponses_whenFilterEmpty() {
         // given
-        User owner = userWithEmail("a@b.com");
-        Task t1 = task(1L, "T1", TaskStatus.DONE, owner);
-
-        when(taskRepository.findAll(any(Pageable.class))).thenReturn(pageOf(t1));
+        when(taskRepository.findAllResponses(any(Pageable.class)))
+                .thenReturn(responsePageOf(response(1L, TaskStatus.DONE, "a@b.com")));
 
         // when
-        Page<TaskResponse> result = taskService.getAllTasks(null, pageable());
+        Page<TaskResponse> result = taskService.getAllTasks(new TaskFilter(), pageable());
 
         // then
         assertThat(result.getTotalElements()).isEqualTo(1);
         assertThat(result.getContent().get(0).getStatus()).isEqualTo(TaskStatus.DONE);
 
-        verify(taskRepository).findAll(any(Pageable.class));
-        verify(taskRepository, never()).findByStatus(any(), any());
+        verify(taskRepository).findAllResponses(any(Pageable.class));
+        verify(taskRepository, never()).findResponses(any(), any(), any());
+        verifyNoMoreInteractions(taskRepository, userRepository);
+    }
+
+
+    @Test
+    void getAllTasksSlice_shouldNotCount_andAttachEstimate_whenRequested() {
+        // given
+        when(taskRepository.findAllResponsesAsSlice(any(Pageable.class))).thenReturn(
+                new SliceImpl<>(java.util.List.of(response(1L, TaskStatus.TODO, "a@b.com")), pageable(), true));
+        when(rowEstimateService.tasks()).thenReturn(1_250_000L);
+
+        // when
+        SliceResponse<TaskResponse> result = taskService.getAllTasksSlice(null, pageable(), true);
+
+        // then
+        assertThat(result.getContent()).extracting(TaskResponse::getId).containsExactly(1L);
+        assertThat(result.isHasNext()).isTrue();
+        assertThat(result.getEstimatedTotal()).isEqualTo(1_250_000L);
+
+        verify(taskRepository).findAllResponsesAsSlice(any(Pageable.class));
+        verify(rowEstimateService).tasks();
+        verifyNoMoreInteractions(taskRepository, userRepository, rowEstimateService);
+    }
+
+    @Test
+    void getAllTasksSlice_shouldSkipEstimate_forStatusFilter() {
+        // given
+        when(taskRepository.findResponsesByStatusAsSlice(eq(TaskStatus.DONE), any(Pageable.class))).thenReturn(
+                new SliceImpl<>(java.util.List.of(response(2L, TaskStatus.DONE, "a@b.com")), pageable(), false));
+
+        // when
+        SliceResponse<TaskResponse> result = taskService.getAllTasksSlice(TaskStatus.DONE, pageable(), true);
+
+        // then
+        assertThat(result.isHasNext()).isFalse();
+        assertThat(result.getEstimatedTotal()).isNull();
+
+        verify(taskRepository).findResponsesByStatusAsSlice(eq(TaskStatus.DONE), any(Pageable.class));
+        verifyNoMoreInteractions(taskRepository, userRepository);
+        verifyNoInteractions(rowEstimateService);
+    }
+
+    @Test
+    void getAllUserTasksSlice_shouldThrow_whenEmptyAndUserNotFound() {
+        // given
+        when(taskRepository.findResponsesByOwnerIdAsSlice(eq(10L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(java.util.List.of(), pageable(), false));
+        when(userRepository.existsById(10L)).thenReturn(false);
+
+        // when + then
+        assertThatThrownBy(() -> taskService.getAllUserTasksSlice(10L, null, pageable()))
+                .isInstanceOf(UserNotFoundException.class);
+
+        verify(taskRepository).findResponsesByOwnerIdAsSlice(eq(10L), any(Pageable.class));
+        verify(userRepository).existsById(10L);
+        verifyNoMoreInteractions(taskRepository, userRepository);
+    }
+
+
+    @Test
+    void getAllTasksByCursor_shouldFetchOneExtraRow_andReturnNextCursor() {
+        // given
+        when(taskRepository.findFirstResponsesByStatus(TaskStatus.TODO, Limit.of(3))).thenReturn(java.util.List.of(
+                response(9L, TaskStatus.TODO, "a@b.com"),
+                response(8L, TaskStatus.TODO, "a@b.com"),
+                response(7L, TaskStatus.TODO, "a@b.com")));
+
+        // when
+        CursorPage<TaskResponse> result = taskService.getAllTasksByCursor(TaskStatus.TODO, null, 2);
+
+        // then
+        assertThat(result.getContent()).extracting(TaskResponse::getId).containsExactly(9L, 8L);
+        assertThat(result.isHasNext()).isTrue();
+        assertThat(TaskCursor.decode(result.getNextCursor()))
+                .isEqualTo(new TaskCursor(LocalDateTime.of(2025, 1, 1, 12, 0), 8L));
+
+        verify(taskRepository).findFirstResponsesByStatus(TaskStatus.TODO, Limit.of(3));
+        verifyNoMoreInteractions(taskRepository, userRepository);
+    }
+
+    @Test
+    void getAllTasksByCursor_shouldSeekAfterCursor_andReportLastPage() {
+        // given
+        String after = new TaskCursor(LocalDateTime.of(2025, 1, 1, 12, 0), 8L).encode();
+        when(taskRepository.findResponsesAfter(LocalDateTime.of(2025, 1, 1, 12, 0), 8L, Limit.of(3)))
+                .thenReturn(java.util.List.of(response(7L, TaskStatus.DONE, "a@b.com")));
+
+        // when
+        CursorPage<TaskResponse> result = taskService.getAllTasksByCursor(null, after, 2);
+
+        // then
+        assertThat(result.getContent()).extracting(TaskResponse::getId).containsExactly(7L);
+        assertThat(result.isHasNext()).isFalse();
+        assertThat(result.getNextCursor()).isNull();
+
+        verify(taskRepository).findResponsesAfter(LocalDateTime.of(2025, 1, 1, 12, 0), 8L, Limit.of(3));
+        verifyNoMoreInteractions(taskRepository, userRepository);
+    }
+
+    @Test
+    void getMyTasksByCursor_shouldThrow_whenCursorInvalid() {
+        // when + then
+        assertThatThrownBy(() -> taskService.getMyTasksByCursor(1L, "not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> taskService.getMyTasksByCursor(1L, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(taskRepository, userRepository);
+    }
+
+    @Test
+    void getMyTasksByCursor_shouldSeekWithinOwnerTasks() {
+        // given
+        String after = new TaskCursor(LocalDateTime.of(2025, 1, 1, 12, 0), 5L).encode();
+        when(taskRepository.findResponsesByOwnerIdAfter(1L, LocalDateTime.of(2025, 1, 1, 12, 0), 5L, Limit.of(11)))
+                .thenReturn(java.util.List.of(response(4L, TaskStatus.TODO, "me@ex.com")));
+
+        // when
+        CursorPage<TaskResponse> result = taskService.getMyTasksByCursor(1L, after, 10);
+
+        // then
+        assertThat(result.getContent()).extracting(TaskResponse::getId).containsExactly(4L);
+        assertThat(result.isHasNext()).isFalse();
+
+        verify(taskRepository).findResponsesByOwnerIdAfter(1L, LocalDateTime.of(2025, 1, 1, 12, 0), 5L, Limit.of(11));
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
@@ -117,26 +265,41 @@ class TaskServiceTest {
     @Test
     void getAllUserTasks_shouldThrow_whenUserNotFound() {
         // given
-        when(userRepository.findById(10L)).thenReturn(Optional.empty());
+        when(taskRepository.findResponsesByOwnerIdAndStatus(eq(10L), eq(TaskStatus.TODO), any(Pageable.class)))
+                .thenReturn(responsePageOf());
+        when(userRepository.existsById(10L)).thenReturn(false);
 
         // when + then
         assertThatThrownBy(() -> taskService.getAllUserTasks(10L, TaskStatus.TODO, pageable()))
                 .isInstanceOf(UserNotFoundException.class);
 
-        verify(userRepository).findById(10L);
-        verifyNoInteractions(taskRepository);
-        verifyNoMoreInteractions(userRepository);
+        verify(taskRepository).findResponsesByOwnerIdAndStatus(eq(10L), eq(TaskStatus.TODO), any(Pageable.class));
+        verify(userRepository).existsById(10L);
+        verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
     @Test
-    void getAllUserTasks_shouldCallFindByOwnerAndStatus_whenStatusProvided() {
+    void getAllUserTasks_shouldReturnEmptyPage_whenUserExistsWithoutTasks() {
         // given
-        User user = userWithEmail("user@ex.com");
-        when(userRepository.findById(5L)).thenReturn(Optional.of(user));
+        when(taskRepository.findResponsesByOwnerId(eq(5L), any(Pageable.class))).thenReturn(responsePageOf());
+        when(userRepository.existsById(5L)).thenReturn(true);
+
+        // when
+        Page<TaskResponse> result = taskService.getAllUserTasks(5L, null, pageable());
+
+        // then
+        assertThat(result.getContent()).isEmpty();
 
-        Task t1 = task(1L, "T1", TaskStatus.IN_PROGRESS, user);
-        when(taskRepository.findByOwnerAndStatus(eq(user), eq(TaskStatus.IN_PROGRESS), any(Pageable.class)))
-                .thenReturn(pageOf(t1));
+        verify(taskRepository).findResponsesByOwnerId(eq(5L), any(Pageable.class));
+        verify(userRepository).existsById(5L);
+        verifyNoMoreInteractions(taskRepository, userRepository);
+    }
+
+    @Test
+    void getAllUserTasks_shouldCallFindResponsesByOwnerIdAndStatus_whenStatusProvided() {
+        // given
+        when(taskRepository.findResponsesByOwnerIdAndStatus(eq(5L), eq(TaskStatus.IN_PROGRESS), any(Pageable.class)))
+                .thenReturn(responsePageOf(response(1L, TaskStatus.IN_PROGRESS, "user@ex.com")));
 
         // when
         Page<TaskResponse> result = taskService.getAllUserTasks(5L, TaskStatus.IN_PROGRESS, pageable());
@@ -145,20 +308,16 @@ class TaskServiceTest {
         assertThat(result.getTotalElements()).isEqualTo(1);
         assertThat(result.getContent().get(0).getOwner()).isEqualTo("user@ex.com");
 
-        verify(userRepository).findById(5L);
-        verify(taskRepository).findByOwnerAndStatus(eq(user), eq(TaskStatus.IN_PROGRESS), any(Pageable.class));
-        verify(taskRepository, never()).findByOwner(any(), any());
+        verify(taskRepository).findResponsesByOwnerIdAndStatus(eq(5L), eq(TaskStatus.IN_PROGRESS), any(Pageable.class));
+        verify(taskRepository, never()).findResponsesByOwnerId(any(), any());
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
     @Test
-    void getAllUserTasks_shouldCallFindByOwner_whenStatusNull() {
+    void getAllUserTasks_shouldCallFindResponsesByOwnerId_whenStatusNull() {
         // given
-        User user = userWithEmail("user@ex.com");
-        when(userRepository.findById(5L)).thenReturn(Optional.of(user));
-
-        Task t1 = task(1L, "T1", TaskStatus.TODO, user);
-        when(taskRepository.findByOwner(eq(user), any(Pageable.class))).thenReturn(pageOf(t1));
+        when(taskRepository.findResponsesByOwnerId(eq(5L), any(Pageable.class)))
+                .thenReturn(responsePageOf(response(1L, TaskStatus.TODO, "user@ex.com")));
 
         // when
         Page<TaskResponse> result = taskService.getAllUserTasks(5L, null, pageable());
@@ -166,9 +325,8 @@ class TaskServiceTest {
         // then
         assertThat(result.getTotalElements()).isEqualTo(1);
 
-        verify(userRepository).findById(5L);
-        verify(taskRepository).findByOwner(eq(user), any(Pageable.class));
-        verify(taskRepository, never()).findByOwnerAndStatus(any(), any(), any());
+        verify(taskRepository).findResponsesByOwnerId(eq(5L), any(Pageable.class));
+        verify(taskRepository, never()).findResponsesByOwnerIdAndStatus(any(), any(), any());
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
@@ -176,10 +334,8 @@ class TaskServiceTest {
     @Test
     void getMyTask_shouldReturnTask_whenExistsAndOwned() {
         // given
-        User owner = userWithEmail("me@ex.com");
-        Task t = task(7L, "Mine", TaskStatus.TODO, owner);
-
-        when(taskRepository.findByIdAndOwnerId(7L, 1L)).thenReturn(Optional.of(t));
+        when(taskRepository.findResponseByIdAndOwnerId(7L, 1L))
+                .thenReturn(Optional.of(response(7L, TaskStatus.TODO, "me@ex.com")));
 
         // when
         TaskResponse resp = taskService.getMyTask(7L, 1L);
@@ -188,67 +344,190 @@ class TaskServiceTest {
         assertThat(resp.getId()).isEqualTo(7L);
         assertThat(resp.getOwner()).isEqualTo("me@ex.com");
 
-        verify(taskRepository).findByIdAndOwnerId(7L, 1L);
+        verify(taskRepository).findResponseByIdAndOwnerId(7L, 1L);
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
     @Test
     void getMyTask_shouldThrow_whenNotFoundOrNotOwned() {
         // given
-        when(taskRepository.findByIdAndOwnerId(7L, 1L)).thenReturn(Optional.empty());
+        when(taskRepository.findResponseByIdAndOwnerId(7L, 1L)).thenReturn(Optional.empty());
 
         // when + then
         assertThatThrownBy(() -> taskService.getMyTask(7L, 1L))
                 .isInstanceOf(TaskNotFoundException.class);
 
-        verify(taskRepository).findByIdAndOwnerId(7L, 1L);
+        verify(taskRepository).findResponseByIdAndOwnerId(7L, 1L);
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
 
     @Test
-    void getMyTasks_shouldThrow_whenUserNotFound() {
+    void getMyTasks_shouldReturnTasks_forUser_withoutUserLookup() {
         // given
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(taskRepository.findResponsesByOwnerId(eq(1L), any(Pageable.class))).thenReturn(responsePageOf(
+                response(1L, TaskStatus.TODO, "me@ex.com"),
+                response(2L, TaskStatus.DONE, "me@ex.com")));
 
-        // when + then
-        assertThatThrownBy(() -> taskService.getMyTasks(1L, pageable()))
-                .isInstanceOf(UserNotFoundException.class);
+        // when
+        Page<TaskResponse> result = taskService.getMyTasks(1L, new TaskFilter(), pageable());
+
+        // then
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(result.getContent()).extracting(TaskResponse::getId).containsExactly(1L, 2L);
 
-        verify(userRepository).findById(1L);
-        verifyNoInteractions(taskRepository);
-        verifyNoMoreInteractions(userRepository);
+        verify(taskRepository).findResponsesByOwnerId(eq(1L), any(Pageable.class));
+        verifyNoMoreInteractions(taskRepository);
+        verifyNoInteractions(userRepository);
     }
 
+
     @Test
-    void getMyTasks_shouldReturnTasks_forUser() {
+    void getMyTasks_shouldUseDynamicQueryScopedToOwner_whenFilterHasCriteria() {
         // given
-        User user = userWithEmail("me@ex.com");
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        TaskFilter filter = new TaskFilter();
+        filter.setImportance(Importance.IMPORTANT);
+
+        when(taskRepository.findResponses(eq(1L), same(filter), any(Pageable.class)))
+                .thenReturn(responsePageOf(response(3L, TaskStatus.TODO, "me@ex.com")));
+
+        // when
+        Page<TaskResponse> result = taskService.getMyTasks(1L, filter, pageable());
+
+        // then
+        assertThat(result.getContent()).extracting(TaskResponse::getId).containsExactly(3L);
 
-        Task t1 = task(1L, "T1", TaskStatus.TODO, user);
-        Task t2 = task(2L, "T2", TaskStatus.DONE, user);
+        verify(taskRepository).findResponses(eq(1L), same(filter), any(Pageable.class));
+        verifyNoMoreInteractions(taskRepository);
+        verifyNoInteractions(userRepository);
+    }
+
+
+    @Test
+    void toPrefixQuery_shouldPrefixEveryWord_andDropOperators() {
+        assertThat(TaskService.toPrefixQuery("Buy MILK")).isEqualTo("buy:* & milk:*");
+        assertThat(TaskService.toPrefixQuery("  zakupy & !mleko:* | (chleb)")).isEqualTo("zakupy:* & mleko:* & chleb:*");
+        assertThatThrownBy(() -> TaskService.toPrefixQuery(" &|! "))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
 
-        when(taskRepository.findByOwner(eq(user), any(Pageable.class))).thenReturn(pageOf(t1, t2));
+    @Test
+    void searchMyTasks_shouldPageByCreatedDateAndId() {
+        // given
+        LocalDateTime created = LocalDateTime.of(2025, 1, 1, 12, 0);
+        when(taskRepository.search(1L, "buy:*", null, null, 3)).thenReturn(java.util.List.of(
+                response(5L, TaskStatus.TODO, "me@ex.com"),
+                response(4L, TaskStatus.TODO, "me@ex.com"),
+                response(3L, TaskStatus.TODO, "me@ex.com")));
+        when(taskRepository.search(1L, "buy:*", created, 4L, 3)).thenReturn(java.util.List.of(
+                response(3L, TaskStatus.TODO, "me@ex.com")));
 
         // when
-        Page<TaskResponse> result = taskService.getMyTasks(1L, pageable());
+        CursorPage<TaskResponse> first = taskService.searchMyTasks(1L, "buy", null, 2);
+        CursorPage<TaskResponse> second = taskService.searchMyTasks(1L, "buy", first.getNextCursor(), 2);
 
         // then
-        assertThat(result.getTotalElements()).isEqualTo(2);
-        assertThat(result.getContent()).extracting(TaskResponse::getId).containsExactly(1L, 2L);
+        assertThat(first.getContent()).extracting(TaskResponse::getId).containsExactly(5L, 4L);
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(TaskCursor.decode(first.getNextCursor())).isEqualTo(new TaskCursor(created, 4L));
+        assertThat(second.getContent()).extracting(TaskResponse::getId).containsExactly(3L);
+        assertThat(second.isHasNext()).isFalse();
+
+        verify(taskRepository).search(1L, "buy:*", null, null, 3);
+        verify(taskRepository).search(1L, "buy:*", created, 4L, 3);
+        verifyNoMoreInteractions(taskRepository);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void searchAllTasks_shouldThrow_whenQueryHasNoWords() {
+        // when + then
+        assertThatThrownBy(() -> taskService.searchAllTasks(null, "***", null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(taskRepository, userRepository);
+    }
+
+
+    @Test
+    void getMyTaskSummary_shouldFillAllQuadrants_fromGroupedCounts() {
+        // given
+        when(taskRepository.countByQuadrantAndStatus(1L)).thenReturn(java.util.List.of(
+                new TaskCount(Urgency.URGENT, Importance.IMPORTANT, TaskStatus.TODO, 3),
+                new TaskCount(Urgency.URGENT, Importance.IMPORTANT, TaskStatus.DONE, 2),
+                new TaskCount(Urgency.NOT_URGENT, Importance.NOT_IMPORTANT, TaskStatus.IN_PROGRESS, 1)));
+
+        // when
+        TaskSummaryResponse summary = taskService.getMyTaskSummary(1L);
+
+        // then
+        assertThat(summary.getTotal()).isEqualTo(6);
+        assertThat(summary.getQuadrants()).hasSize(4);
+        QuadrantSummary doFirst = summary.getQuadrants().get(0);
+        assertThat(doFirst.getUrgency()).isEqualTo(Urgency.URGENT);
+        assertThat(doFirst.getImportance()).isEqualTo(Importance.IMPORTANT);
+        assertThat(doFirst.getTotal()).isEqualTo(5);
+        assertThat(doFirst.getByStatus()).containsEntry(TaskStatus.TODO, 3L)
+                .containsEntry(TaskStatus.IN_PROGRESS, 0L)
+                .containsEntry(TaskStatus.DONE, 2L);
+        assertThat(summary.getQuadrants().get(1).getTotal()).isZero();
+
+        verify(taskRepository).countByQuadrantAndStatus(1L);
+        verifyNoMoreInteractions(taskRepository);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getUserTaskSummary_shouldThrow_whenNoCountsAndUserNotFound() {
+        // given
+        when(taskRepository.countByQuadrantAndStatus(10L)).thenReturn(java.util.List.of());
+        when(userRepository.existsById(10L)).thenReturn(false);
 
-        verify(userRepository).findById(1L);
-        verify(taskRepository).findByOwner(eq(user), any(Pageable.class));
+        // when + then
+        assertThatThrownBy(() -> taskService.getUserTaskSummary(10L))
+                .isInstanceOf(UserNotFoundException.class);
+
+        verify(taskRepository).countByQuadrantAndStatus(10L);
+        verify(userRepository).existsById(10L);
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
 
+    @Test
+    void getMyTaskVersion_shouldReadVersionOnly_andThrowWhenNotOwned() {
+        // given
+        when(taskRepository.findVersionByIdAndOwnerId(7L, 1L)).thenReturn(Optional.of(4L));
+        when(taskRepository.findVersionByIdAndOwnerId(8L, 1L)).thenReturn(Optional.empty());
+
+        // when + then
+        assertThat(taskService.getMyTaskVersion(7L, 1L)).isEqualTo(4L);
+        assertThatThrownBy(() -> taskService.getMyTaskVersion(8L, 1L))
+                .isInstanceOf(TaskNotFoundException.class);
+
+        verify(taskRepository).findVersionByIdAndOwnerId(7L, 1L);
+        verify(taskRepository).findVersionByIdAndOwnerId(8L, 1L);
+        verifyNoMoreInteractions(taskRepository, userRepository);
+    }
+
+    @Test
+    void getMyTasksRevision_shouldComeFromStatsRow() {
+        // given
+        when(taskStatsService.revision(1L)).thenReturn(17L);
+
+        // when
+        long revision = taskService.getMyTasksRevision(1L);
+
+        // then
+        assertThat(revision).isEqualTo(17L);
+        verifyNoInteractions(taskRepository, userRepository);
+    }
+
+
     @Test
     void createMyTask_shouldSetOwner_saveAndReturnResponse() {
         // given
         User user = userWithEmail("me@ex.com");
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
 
         CreateTaskDto dto = createDto("New Task");
 
@@ -264,10 +543,11 @@ class TaskServiceTest {
         ArgumentCaptor<Task> captor = ArgumentCaptor.forClass(Task.class);
 
         // when
-        TaskResponse resp = taskService.createMyTask(dto, 1L);
+        TaskResponse resp = taskService.createMyTask(dto, 1L, "me@ex.com");
 
         // then
-        verify(userRepository).findById(1L);
+        verify(userRepository).getReferenceById(1L);
+        verify(taskRepository).lockChanges(1L);
         verify(taskRepository).save(captor.capture());
 
         Task saved = captor.getValue();
@@ -279,21 +559,86 @@ class TaskServiceTest {
         assertThat(resp.getId()).isEqualTo(123L);
         assertThat(resp.getOwner()).isEqualTo("me@ex.com");
 
-        verifyNoMoreInteractions(taskRepository, userRepository);
+        verify(taskStatsService).taskCreated(1L, TaskStatus.TODO);
+        verify(taskEventPublisher).publish(new TaskEvent(1L, TaskEventType.CREATED, 123L, TaskStatus.TODO));
+        verifyNoMoreInteractions(taskRepository, userRepository, taskStatsService, taskEventPublisher);
     }
 
     @Test
     void createMyTask_shouldThrow_whenUserNotFound() {
         // given
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        User missing = userWithEmail("gone@ex.com");
+        when(userRepository.getReferenceById(1L)).thenReturn(missing);
+        when(taskRepository.save(any(Task.class))).thenThrow(integrityViolation("23503", "fk_tasks_user"));
 
         // when + then
-        assertThatThrownBy(() -> taskService.createMyTask(createDto("New Task"), 1L))
+        assertThatThrownBy(() -> taskService.createMyTask(createDto("New Task"), 1L, "gone@ex.com"))
                 .isInstanceOf(UserNotFoundException.class);
 
-        verify(userRepository).findById(1L);
-        verifyNoInteractions(taskRepository);
-        verifyNoMoreInteractions(userRepository);
+        verify(userRepository).getReferenceById(1L);
+        verify(taskRepository).lockChanges(1L);
+        verify(taskRepository).save(any(Task.class));
+        verifyNoMoreInteractions(taskRepository, userRepository);
+        verifyNoInteractions(taskStatsService, taskEventPublisher);
+    }
+
+    @Test
+    void createMyTask_shouldRethrow_otherIntegrityViolations() {
+        // given
+        DataIntegrityViolationException violation = integrityViolation("23514", "tasks_status_check");
+        when(userRepository.getReferenceById(1L)).thenReturn(userWithEmail("me@ex.com"));
+        when(taskRepository.save(any(Task.class))).thenThrow(violation);
+
+        // when + then
+        assertThatThrownBy(() -> taskService.createMyTask(createDto("New Task"), 1L, "me@ex.com"))
+                .isSameAs(violation);
+
+        verifyNoInteractions(taskStatsService, taskEventPublisher);
+    }
+
+    @Test
+    void importMyTasks_shouldThrow_whenCopyViolatesOwnerForeignKey() {
+        // given: COPY errors reach us as a bare SQLException without a parsed constraint name
+        List<CreateTaskDto> chunk = List.of(createDto("First"));
+        SQLException copyError = new SQLException(
+                "ERROR: insert or update on table \"tasks\" violates foreign key constraint \"fk_tasks_user\"", "23503");
+        when(taskRepository.copyTasks(1L, chunk)).thenThrow(new DataIntegrityViolationException("COPY failed", copyError));
+
+        // when + then
+        assertThatThrownBy(() -> taskService.importMyTasks(1L, chunk)).isInstanceOf(UserNotFoundException.class);
+
+        verifyNoInteractions(taskStatsService, taskEventPublisher);
+    }
+
+    @Test
+    void importMyTasks_shouldRethrow_otherIntegrityViolations() {
+        // given
+        List<CreateTaskDto> chunk = List.of(createDto("First"));
+        DataIntegrityViolationException violation = integrityViolation("23502", null);
+        when(taskRepository.copyTasks(1L, chunk)).thenThrow(violation);
+
+        // when + then
+        assertThatThrownBy(() -> taskService.importMyTasks(1L, chunk)).isSameAs(violation);
+
+        verifyNoInteractions(taskStatsService, taskEventPublisher);
+    }
+
+    @Test
+    void importMyTasks_shouldCopyChunk_updateCounters_andPublishOneEvent() {
+        // given
+        List<CreateTaskDto> chunk = List.of(createDto("First"), createDto("Second"));
+        when(taskRepository.copyTasks(1L, chunk)).thenReturn(2L);
+
+        // when
+        long imported = taskService.importMyTasks(1L, chunk);
+
+        // then
+        assertThat(imported).isEqualTo(2L);
+        verify(taskRepository).lockChanges(1L);
+        verify(taskRepository).copyTasks(1L, chunk);
+        verify(taskStatsService).tasksCreated(1L, TaskStatus.TODO, 2L);
+        verify(taskEventPublisher).publish(new TaskEvent(1L, TaskEventType.IMPORTED, null, TaskStatus.TODO));
+        verifyNoMoreInteractions(taskRepository, userRepository, taskStatsService, taskEventPublisher);
     }
 
     @Test
@@ -315,9 +660,13 @@ class TaskServiceTest {
         assertThat(t.getUrgency()).isEqualTo(Urgency.NOT_URGENT);
         assertThat(t.getImportance()).isEqualTo(Importance.NOT_IMPORTANT);
 
-        verify(taskRepository).findByIdAndOwnerId(7L, 1L);
+        InOrder inOrder = inOrder(taskRepository, taskStatsService);
+        inOrder.verify(taskRepository).lockChanges(1L);
+        inOrder.verify(taskRepository).findByIdAndOwnerId(7L, 1L);
+        inOrder.verify(taskStatsService).taskUpdated(1L, TaskStatus.TODO, TaskStatus.DONE);
         verify(taskRepository, never()).save(any());
-        verifyNoMoreInteractions(taskRepository, userRepository);
+        verify(taskEventPublisher).publish(new TaskEvent(1L, TaskEventType.UPDATED, 7L, TaskStatus.DONE));
+        verifyNoMoreInteractions(taskRepository, userRepository, taskStatsService, taskEventPublisher);
     }
 
     @Test
@@ -329,6 +678,7 @@ class TaskServiceTest {
         assertThatThrownBy(() -> taskService.updateMyTask(7L, updateDto("X", TaskStatus.TODO), 1L))
                 .isInstanceOf(TaskNotFoundException.class);
 
+        verify(taskRepository).lockChanges(1L);
         verify(taskRepository).findByIdAndOwnerId(7L, 1L);
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
@@ -347,8 +697,11 @@ class TaskServiceTest {
         // then
         assertThat(t.getStatus()).isEqualTo(TaskStatus.IN_PROGRESS);
 
+        verify(taskRepository).lockChanges(1L);
         verify(taskRepository).findByIdAndOwnerId(7L, 1L);
-        verifyNoMoreInteractions(taskRepository, userRepository);
+        verify(taskStatsService).taskUpdated(1L, TaskStatus.TODO, TaskStatus.IN_PROGRESS);
+        verify(taskEventPublisher).publish(new TaskEvent(1L, TaskEventType.STATUS_CHANGED, 7L, TaskStatus.IN_PROGRESS));
+        verifyNoMoreInteractions(taskRepository, userRepository, taskStatsService, taskEventPublisher);
     }
 
     @Test
@@ -360,10 +713,127 @@ class TaskServiceTest {
         assertThatThrownBy(() -> taskService.updateMyStatus(7L, TaskStatus.DONE, 1L))
                 .isInstanceOf(TaskNotFoundException.class);
 
+        verify(taskRepository).lockChanges(1L);
         verify(taskRepository).findByIdAndOwnerId(7L, 1L);
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
+    @Test
+    void updateMyTaskIfMatch_shouldCompareAndSet_andReturnNewVersion() {
+        // given
+        UpdateTaskDto dto = updateDto("New Title", TaskStatus.DONE);
+        when(taskRepository.updateIfVersion(7L, 1L, 3L, dto))
+                .thenReturn(Optional.of(new ConditionalUpdate(TaskStatus.TODO, 4L)));
+
+        // when
+        long version = taskService.updateMyTaskIfMatch(7L, dto, 1L, 3L);
+
+        // then
+        assertThat(version).isEqualTo(4L);
+
+        verify(taskRepository).lockChanges(1L);
+        verify(taskRepository).updateIfVersion(7L, 1L, 3L, dto);
+        verify(taskStatsService).taskUpdated(1L, TaskStatus.TODO, TaskStatus.DONE);
+        verify(taskEventPublisher).publish(new TaskEvent(1L, TaskEventType.UPDATED, 7L, TaskStatus.DONE));
+        verifyNoMoreInteractions(taskRepository, userRepository, taskStatsService, taskEventPublisher);
+    }
+
+    @Test
+    void updateMyStatusIfMatch_shouldThrowPreconditionFailed_whenVersionChanged() {
+        // given
+        when(taskRepository.updateStatusIfVersion(7L, 1L, 3L, TaskStatus.DONE)).thenReturn(Optional.empty());
+        when(taskRepository.findVersionByIdAndOwnerId(7L, 1L)).thenReturn(Optional.of(5L));
+
+        // when + then
+        assertThatThrownBy(() -> taskService.updateMyStatusIfMatch(7L, TaskStatus.DONE, 1L, 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+
+        verify(taskRepository).lockChanges(1L);
+        verify(taskRepository).updateStatusIfVersion(7L, 1L, 3L, TaskStatus.DONE);
+        verify(taskRepository).findVersionByIdAndOwnerId(7L, 1L);
+        verifyNoMoreInteractions(taskRepository, userRepository);
+        verifyNoInteractions(taskStatsService, taskEventPublisher);
+    }
+
+    @Test
+    void updateMyStatusIfMatch_shouldThrowNotFound_whenTaskMissingOrNotOwned() {
+        // given
+        when(taskRepository.updateStatusIfVersion(7L, 1L, 3L, TaskStatus.DONE)).thenReturn(Optional.empty());
+        when(taskRepository.findVersionByIdAndOwnerId(7L, 1L)).thenReturn(Optional.empty());
+
+        // when + then
+        assertThatThrownBy(() -> taskService.updateMyStatusIfMatch(7L, TaskStatus.DONE, 1L, 3L))
+                .isInstanceOf(TaskNotFoundException.class);
+
+        verifyNoInteractions(taskStatsService, taskEventPublisher);
+    }
+
+    @Test
+    void updateMyStatuses_shouldUpdateInOneStatement_andReportMissingIds() {
+        // given
+        when(taskRepository.updateStatusByIds(eq(1L), anyCollection(), eq(TaskStatus.DONE)))
+                .thenReturn(List.of(new AffectedTask(7L, TaskStatus.TODO), new AffectedTask(9L, TaskStatus.DONE)));
+
+        // when
+        BulkTaskResponse result = taskService.updateMyStatuses(List.of(7L, 8L, 9L, 7L), TaskStatus.DONE, 1L);
+
+        // then
+        assertThat(result.getSucceeded()).containsExactly(7L, 9L);
+        assertThat(result.getNotFound()).containsExactly(8L);
+
+        verify(taskRepository).lockChanges(1L);
+        verify(taskRepository).updateStatusByIds(1L, new java.util.LinkedHashSet<>(List.of(7L, 8L, 9L)), TaskStatus.DONE);
+        verify(taskStatsService).tasksUpdated(1L, List.of(TaskStatus.TODO, TaskStatus.DONE), TaskStatus.DONE);
+        verify(taskEventPublisher).publish(new TaskEvent(1L, TaskEventType.BULK_STATUS_CHANGED, null, TaskStatus.DONE));
+        verifyNoMoreInteractions(taskRepository, userRepository, taskStatsService, taskEventPublisher);
+    }
+
+    @Test
+    void updateMyStatuses_shouldRejectTooManyIds() {
+        // given
+        List<Long> ids = java.util.stream.LongStream.rangeClosed(1, TaskService.MAX_BULK_IDS + 1).boxed().toList();
+
+        // when + then
+        assertThatThrownBy(() -> taskService.updateMyStatuses(ids, TaskStatus.DONE, 1L))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(taskRepository, taskStatsService, taskEventPublisher);
+    }
+
+    @Test
+    void deleteMyTasks_shouldDeleteOwnedIds_andSkipEvent_whenNothingMatched() {
+        // given
+        when(taskRepository.deleteByIds(eq(1L), anyCollection())).thenReturn(List.of());
+
+        // when
+        BulkTaskResponse result = taskService.deleteMyTasks(List.of(7L, 8L), 1L);
+
+        // then
+        assertThat(result.getSucceeded()).isEmpty();
+        assertThat(result.getNotFound()).containsExactly(7L, 8L);
+
+        verify(taskRepository).lockChanges(1L);
+        verify(taskRepository).deleteByIds(eq(1L), anyCollection());
+        verify(taskStatsService).tasksDeleted(1L, List.of());
+        verifyNoMoreInteractions(taskRepository, userRepository, taskStatsService);
+        verifyNoInteractions(taskEventPublisher);
+    }
+
+    @Test
+    void deleteMyTasks_shouldUpdateCountersFromReturnedStatuses() {
+        // given
+        when(taskRepository.deleteByIds(eq(1L), anyCollection()))
+                .thenReturn(List.of(new AffectedTask(7L, TaskStatus.TODO), new AffectedTask(8L, TaskStatus.IN_PROGRESS)));
+
+        // when
+        BulkTaskResponse result = taskService.deleteMyTasks(List.of(7L, 8L), 1L);
+
+        // then
+        assertThat(result.getSucceeded()).containsExactly(7L, 8L);
+        verify(taskStatsService).tasksDeleted(1L, List.of(TaskStatus.TODO, TaskStatus.IN_PROGRESS));
+        verify(taskEventPublisher).publish(new TaskEvent(1L, TaskEventType.BULK_DELETED, null, null));
+    }
+
     @Test
     void deleteMyTask_shouldDelete_whenOwned() {
         // given
@@ -376,9 +846,12 @@ class TaskServiceTest {
         taskService.deleteMyTask(7L, 1L);
 
         // then
+        verify(taskRepository).lockChanges(1L);
         verify(taskRepository).findByIdAndOwnerId(7L, 1L);
         verify(taskRepository).delete(t);
-        verifyNoMoreInteractions(taskRepository, userRepository);
+        verify(taskStatsService).tasksDeleted(1L, TaskStatus.TODO, 1);
+        verify(taskEventPublisher).publish(new TaskEvent(1L, TaskEventType.DELETED, 7L, null));
+        verifyNoMoreInteractions(taskRepository, userRepository, taskStatsService, taskEventPublisher);
     }
 
     @Test
@@ -390,37 +863,33 @@ class TaskServiceTest {
         assertThatThrownBy(() -> taskService.deleteMyTask(7L, 1L))
                 .isInstanceOf(TaskNotFoundException.class);
 
+        verify(taskRepository).lockChanges(1L);
         verify(taskRepository).findByIdAndOwnerId(7L, 1L);
         verify(taskRepository, never()).delete(any());
         verifyNoMoreInteractions(taskRepository, userRepository);
     }
 
     @Test
-    void deleteMyTasksByStatus_shouldCallRepoDeleteAll_whenUserExists() {
+    void deleteMyTasksByStatusChunk_shouldDeleteOneChunkByOwnerId_withoutUserLookup() {
         // given
-        User user = userWithEmail("me@ex.com");
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(taskRepository.deleteChunkByOwnerIdAndStatus(1L, "DONE", 500)).thenReturn(3);
 
         // when
-        taskService.deleteMyTasksByStatus(1L, TaskStatus.DONE);
+        int deleted = taskService.deleteMyTasksByStatusChunk(1L, TaskStatus.DONE, 500);
 
         // then
-        verify(userRepository).findById(1L);
-        verify(taskRepository).deleteAllByOwnerAndStatus(user, TaskStatus.DONE);
-        verifyNoMoreInteractions(taskRepository, userRepository);
+        assertThat(deleted).isEqualTo(3);
+        verify(taskRepository).lockChanges(1L);
+        verify(taskRepository).deleteChunkByOwnerIdAndStatus(1L, "DONE", 500);
+        verify(taskStatsService).tasksDeleted(1L, TaskStatus.DONE, 3);
+        verify(taskEventPublisher).publish(new TaskEvent(1L, TaskEventType.DELETED_BY_STATUS, null, TaskStatus.DONE));
+        verifyNoMoreInteractions(taskRepository, taskStatsService, taskEventPublisher);
+        verifyNoInteractions(userRepository);
     }
 
-    @Test
-    void deleteMyTasksByStatus_shouldThrow_whenUserNotFound() {
-        // given
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
-
-        // when + then
-        assertThatThrownBy(() -> taskService.deleteMyTasksByStatus(1L, TaskStatus.DONE))
-                .isInstanceOf(UserNotFoundException.class);
-
-        verify(userRepository).findById(1L);
-        verifyNoInteractions(taskRepository);
-        verifyNoMoreInteractions(userRepository);
+    private static DataIntegrityViolationException integrityViolation(String sqlState, String constraintName) {
+        SQLException sqlException = new SQLException("constraint violated", sqlState);
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", sqlException, constraintName));
     }
 }
@@ -0,0 +1,141 @@
+package krzysztof.nagraba.todoapp.service;
+
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.UserTaskStats;
+import krzysztof.nagraba.todoapp.entity.dto.TaskStatsResponse;
+import krzysztof.nagraba.todoapp.repository.UserTaskStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskStatsServiceTest {
+
+    @Mock UserTaskStatsRepository userTaskStatsRepository;
+
+    @InjectMocks TaskStatsService taskStatsService;
+
+    @Test
+    void taskCreated_shouldIncrementStatusCounter() {
+        // when
+        taskStatsService.taskCreated(1L, TaskStatus.IN_PROGRESS);
+
+        // then
+        verify(userTaskStatsRepository).addCounts(1L, 0, 1, 0);
+        verifyNoMoreInteractions(userTaskStatsRepository);
+    }
+
+    @Test
+    void taskUpdated_shouldMoveOneTaskBetweenCounters_inOneUpsert() {
+        // when
+        taskStatsService.taskUpdated(1L, TaskStatus.TODO, TaskStatus.DONE);
+
+        // then
+        verify(userTaskStatsRepository).addCounts(1L, -1, 0, 1);
+        verifyNoMoreInteractions(userTaskStatsRepository);
+    }
+
+    @Test
+    void taskUpdated_shouldStillBumpRevision_whenStatusUnchanged() {
+        // when
+        taskStatsService.taskUpdated(1L, TaskStatus.DONE, TaskStatus.DONE);
+
+        // then
+        verify(userTaskStatsRepository).addCounts(1L, 0, 0, 0);
+        verifyNoMoreInteractions(userTaskStatsRepository);
+    }
+
+    @Test
+    void tasksUpdated_shouldAggregateManyMovesIntoOneUpsert() {
+        // when
+        taskStatsService.tasksUpdated(1L, List.of(TaskStatus.TODO, TaskStatus.TODO, TaskStatus.IN_PROGRESS, TaskStatus.DONE), TaskStatus.DONE);
+
+        // then
+        verify(userTaskStatsRepository).addCounts(1L, -2, -1, 3);
+        verifyNoMoreInteractions(userTaskStatsRepository);
+    }
+
+    @Test
+    void tasksDeleted_shouldSkipUpsert_whenNothingWasDeleted() {
+        // when
+        taskStatsService.tasksDeleted(1L, List.of());
+        taskStatsService.tasksUpdated(1L, List.of(), TaskStatus.DONE);
+
+        // then
+        verifyNoInteractions(userTaskStatsRepository);
+    }
+
+    @Test
+    void revision_shouldDefaultToZero_whenUserHasNoStatsRow() {
+        // given
+        when(userTaskStatsRepository.findRevisionByUserId(1L)).thenReturn(Optional.of(12L));
+        when(userTaskStatsRepository.findRevisionByUserId(2L)).thenReturn(Optional.empty());
+
+        // when + then
+        assertThat(taskStatsService.revision(1L)).isEqualTo(12L);
+        assertThat(taskStatsService.revision(2L)).isZero();
+    }
+
+    @Test
+    void tasksDeleted_shouldDecrementByCount_andSkipZero() {
+        // when
+        taskStatsService.tasksDeleted(1L, TaskStatus.DONE, 42);
+        taskStatsService.tasksDeleted(1L, TaskStatus.DONE, 0);
+
+        // then
+        verify(userTaskStatsRepository).addCounts(1L, 0, 0, -42);
+        verifyNoMoreInteractions(userTaskStatsRepository);
+    }
+
+    @Test
+    void getStats_shouldReadSingleRow_orReturnZeros() {
+        // given
+        UserTaskStats stats = new UserTaskStats();
+        ReflectionTestUtils.setField(stats, "userId", 1L);
+        ReflectionTestUtils.setField(stats, "todoCount", 3L);
+        ReflectionTestUtils.setField(stats, "inProgressCount", 2L);
+        ReflectionTestUtils.setField(stats, "doneCount", 5L);
+        when(userTaskStatsRepository.findById(1L)).thenReturn(Optional.of(stats));
+        when(userTaskStatsRepository.findById(2L)).thenReturn(Optional.empty());
+
+        // when
+        TaskStatsResponse existing = taskStatsService.getStats(1L);
+        TaskStatsResponse missing = taskStatsService.getStats(2L);
+
+        // then
+        assertThat(existing.getTodo()).isEqualTo(3);
+        assertThat(existing.getInProgress()).isEqualTo(2);
+        assertThat(existing.getDone()).isEqualTo(5);
+        assertThat(existing.getTotal()).isEqualTo(10);
+        assertThat(missing.getTotal()).isZero();
+    }
+
+    @Test
+    void reconcile_shouldLockThenRecountEachDriftedUser() {
+        // given
+        TaskStatsReconciler reconciler = new TaskStatsReconciler(userTaskStatsRepository, taskStatsService);
+        when(userTaskStatsRepository.findDriftedUserIds()).thenReturn(List.of(4L, 9L));
+
+        // when
+        reconciler.reconcile();
+
+        // then
+        InOrder inOrder = inOrder(userTaskStatsRepository);
+        inOrder.verify(userTaskStatsRepository).findDriftedUserIds();
+        inOrder.verify(userTaskStatsRepository).lockByUserId(4L);
+        inOrder.verify(userTaskStatsRepository).recount(4L);
+        inOrder.verify(userTaskStatsRepository).lockByUserId(9L);
+        inOrder.verify(userTaskStatsRepository).recount(9L);
+        verifyNoMoreInteractions(userTaskStatsRepository);
+    }
+}
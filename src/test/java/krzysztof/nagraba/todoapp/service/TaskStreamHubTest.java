@@ -0,0 +1,199 @@
+package krzysztof.nagraba.todoapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import krzysztof.nagraba.todoapp.config.SecurityEpochRegistry;
+import krzysztof.nagraba.todoapp.config.VerifiedToken;
+import krzysztof.nagraba.todoapp.entity.TaskEventType;
+import krzysztof.nagraba.todoapp.entity.TaskStatus;
+import krzysztof.nagraba.todoapp.entity.dto.TaskEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskStreamHubTest {
+
+    // Never runs the drain tasks, so queued messages stay queued like for a client that stopped reading.
+    @Mock ThreadPoolExecutor sender;
+    @Mock TokenRevocationService tokenRevocations;
+
+    SecurityEpochRegistry securityEpochs;
+    SimpleMeterRegistry meterRegistry;
+    TaskStreamHub hub;
+
+    @BeforeEach
+    void setUp() {
+        securityEpochs = new SecurityEpochRegistry(null);
+        meterRegistry = new SimpleMeterRegistry();
+        hub = new TaskStreamHub(2, Duration.ofMinutes(1), Duration.ofSeconds(5), 4, sender, securityEpochs, tokenRevocations, meterRegistry);
+    }
+
+    @Test
+    void dispatch_shouldScheduleOneDrainPerStream_whileMessagesArePending() {
+        // given
+        hub.subscribe(1L, token(1L));
+
+        // when
+        hub.dispatch(event(1L));
+        hub.dispatch(event(1L));
+
+        // then
+        verify(sender).execute(any(Runnable.class));
+        assertThat(hub.connections()).isEqualTo(1);
+    }
+
+    @Test
+    void dispatch_shouldIgnoreEventsOfOtherUsers() {
+        // given
+        hub.subscribe(1L, token(1L));
+
+        // when
+        hub.dispatch(event(2L));
+
+        // then
+        verifyNoInteractions(sender);
+    }
+
+    @Test
+    void dispatch_shouldEvictSlowConsumer_whenBufferIsFull() {
+        // given
+        hub.subscribe(1L, token(1L));
+        hub.subscribe(2L, token(2L));
+
+        // when
+        hub.dispatch(event(1L));
+        hub.dispatch(event(1L));
+        hub.dispatch(event(1L));
+
+        // then
+        assertThat(hub.connections()).isEqualTo(1);
+        assertThat(meterRegistry.get("tasks.stream.evicted").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void heartbeat_shouldEvictStreamsThatStoppedReading() {
+        // given
+        hub.subscribe(1L, token(1L));
+        hub.dispatch(event(1L));
+        hub.dispatch(event(1L));
+
+        // when
+        hub.heartbeat();
+
+        // then
+        assertThat(hub.connections()).isZero();
+    }
+
+    @Test
+    void heartbeat_shouldCloseStreams_whoseTokenWasRevokedOrEpochBumped() {
+        // given
+        hub.subscribe(1L, token(1L));
+        hub.subscribe(2L, token(2L));
+        hub.subscribe(3L, token(3L));
+        securityEpochs.update(1L, 1L);
+        when(tokenRevocations.isRevoked("jti-2")).thenReturn(true);
+
+        // when
+        hub.heartbeat();
+
+        // then
+        assertThat(hub.connections()).isEqualTo(1);
+    }
+
+    @Test
+    void evictStalledSends_shouldEvictBlockedStream_andLendASenderThreadUntilTheSendReturns() throws Exception {
+        // given: one sender thread, user 1's client stopped reading
+        ThreadPoolExecutor realSender = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        CountDownLatch sendStarted = new CountDownLatch(1);
+        CountDownLatch releaseSend = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<SseEmitter> emitters = List.of(
+                blockingEmitter(sendStarted, releaseSend),
+                recordingEmitter(delivered));
+        TaskStreamHub stallingHub = new TaskStreamHub(2, Duration.ofMinutes(1), Duration.ofMillis(10), 4, realSender,
+                securityEpochs, tokenRevocations, meterRegistry) {
+            private int created;
+
+            @Override
+            SseEmitter createEmitter() {
+                return emitters.get(created++);
+            }
+        };
+        stallingHub.subscribe(1L, token(1L));
+        stallingHub.subscribe(2L, token(2L));
+
+        try {
+            stallingHub.dispatch(event(1L));
+            assertThat(sendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(50);
+
+            // when
+            stallingHub.evictStalledSends();
+            stallingHub.dispatch(event(2L));
+
+            // then
+            assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(stallingHub.connections()).isEqualTo(1);
+            assertThat(realSender.getCorePoolSize()).isEqualTo(2);
+            assertThat(meterRegistry.get("tasks.stream.evicted").counter().count()).isEqualTo(1.0);
+
+            releaseSend.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (realSender.getCorePoolSize() != 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(realSender.getCorePoolSize()).isEqualTo(1);
+        } finally {
+            releaseSend.countDown();
+            realSender.shutdownNow();
+        }
+    }
+
+    private static SseEmitter blockingEmitter(CountDownLatch sendStarted, CountDownLatch releaseSend) {
+        return new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                sendStarted.countDown();
+                try {
+                    releaseSend.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static SseEmitter recordingEmitter(CountDownLatch delivered) {
+        return new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                delivered.countDown();
+            }
+        };
+    }
+
+    private static VerifiedToken token(Long userId) {
+        return new VerifiedToken("user" + userId + "@ex.com", List.of("USER"), userId, 0L, "jti-" + userId, Instant.now().plusSeconds(60));
+    }
+
+    private static TaskEvent event(Long userId) {
+        return new TaskEvent(userId, TaskEventType.STATUS_CHANGED, 7L, TaskStatus.DONE);
+    }
+}
@@ -0,0 +1,93 @@
+package krzysztof.nagraba.todoapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import krzysztof.nagraba.todoapp.config.SecurityEpochRegistry;
+import krzysztof.nagraba.todoapp.entity.RevokedToken;
+import krzysztof.nagraba.todoapp.repository.RevokedTokenRepository;
+import krzysztof.nagraba.todoapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock RevokedTokenRepository revokedTokenRepository;
+    @Mock UserRepository userRepository;
+
+    SecurityEpochRegistry securityEpochs;
+    TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        securityEpochs = new SecurityEpochRegistry(userRepository);
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, securityEpochs, 1000, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void revoke_shouldPersist_andRejectTokenImmediately() {
+        // when
+        tokenRevocationService.revoke("jti-1", Instant.now().plusSeconds(600));
+
+        // then
+        assertThat(tokenRevocationService.isRevoked("jti-1")).isTrue();
+        assertThat(tokenRevocationService.isRevoked("jti-2")).isFalse();
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void isRevoked_shouldBeFalse_forTokensNeverRevoked() {
+        // given
+        for (int i = 0; i < 1000; i++) {
+            tokenRevocationService.revoke(UUID.randomUUID().toString(), Instant.now().plusSeconds(600));
+        }
+
+        // when + then
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(tokenRevocationService.isRevoked(UUID.randomUUID().toString())).isFalse();
+        }
+    }
+
+    @Test
+    void compact_shouldLoadRevocationsFromOtherNodes_andDropExpired() {
+        // given
+        tokenRevocationService.revoke("expired-locally", Instant.now().minusSeconds(1));
+        when(revokedTokenRepository.findAllByExpiresAtAfter(any()))
+                .thenReturn(List.of(new RevokedToken("from-other-node", LocalDateTime.now().plusMinutes(10))));
+
+        // when
+        tokenRevocationService.compact();
+
+        // then
+        assertThat(tokenRevocationService.isRevoked("from-other-node")).isTrue();
+        assertThat(tokenRevocationService.isRevoked("expired-locally")).isFalse();
+        verify(revokedTokenRepository).deleteExpired(any());
+    }
+
+    @Test
+    void compact_shouldPickUpSecurityEpochsBumpedOnOtherNodes() {
+        // given
+        UserRepository.SecurityEpochView bumped = mock(UserRepository.SecurityEpochView.class);
+        when(bumped.getId()).thenReturn(7L);
+        when(bumped.getSecurityEpoch()).thenReturn(3L);
+        when(userRepository.findBumpedSecurityEpochs()).thenReturn(List.of(bumped));
+        assertThat(securityEpochs.isCurrent(7L, 0L)).isTrue();
+
+        // when
+        tokenRevocationService.compact();
+
+        // then
+        assertThat(securityEpochs.isCurrent(7L, 0L)).isFalse();
+        assertThat(securityEpochs.isCurrent(7L, 3L)).isTrue();
+    }
+}
@@ -4,9 +4,10 @@ import krzysztof.nagraba.todoapp.config.CustomUserDetails;
 import krzysztof.nagraba.todoapp.entity.Role;
 import krzysztof.nagraba.todoapp.entity.User;
 import krzysztof.nagraba.todoapp.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.GrantedAuthority;
@@ -24,7 +25,12 @@ class UserDetailsServiceTest {
 
     @Mock UserRepository userRepository;
 
-    @InjectMocks UserDetailsService userDetailsService;
+    UserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsService = new UserDetailsService(userRepository, 100, 60, new SimpleMeterRegistry());
+    }
 
     private static User userWithId(Long id, String email, String passwordHash, Role role, boolean enabled) {
         User user = new User(email, passwordHash, role);
@@ -92,4 +98,40 @@ class UserDetailsServiceTest {
         verify(userRepository).findByEmail("a@b.com");
         verifyNoMoreInteractions(userRepository);
     }
+
+    @Test
+    void loadUserByUsername_shouldServeRepeatedLookups_fromCache() {
+        // given
+        User user = userWithId(1L, "a@b.com", "HASH", Role.USER, true);
+        when(userRepository.findByEmail("a@b.com")).thenReturn(Optional.of(user));
+
+        // when
+        userDetailsService.loadUserByUsername("a@b.com");
+        UserDetails details = userDetailsService.loadUserByUsername("  A@B.com ");
+
+        // then
+        assertThat(details.getUsername()).isEqualTo("a@b.com");
+
+        verify(userRepository, times(1)).findByEmail("a@b.com");
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void evict_shouldForceReload_onNextLookup() {
+        // given
+        User user = userWithId(1L, "a@b.com", "HASH", Role.USER, true);
+        when(userRepository.findByEmail("a@b.com")).thenReturn(Optional.of(user));
+        userDetailsService.loadUserByUsername("a@b.com");
+
+        // when
+        user.setEnabled(false);
+        userDetailsService.evict("A@b.com");
+        UserDetails details = userDetailsService.loadUserByUsername("a@b.com");
+
+        // then
+        assertThat(details.isEnabled()).isFalse();
+
+        verify(userRepository, times(2)).findByEmail("a@b.com");
+        verifyNoMoreInteractions(userRepository);
+    }
 }
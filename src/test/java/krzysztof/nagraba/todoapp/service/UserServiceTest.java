@@ -2,6 +2,7 @@ package krzysztof.nagraba.todoapp.service;
 
 import krzysztof.nagraba.todoapp.entity.Role;
 import krzysztof.nagraba.todoapp.entity.User;
+import krzysztof.nagraba.todoapp.entity.dto.SliceResponse;
 import krzysztof.nagraba.todoapp.entity.dto.UserResponse;
 import krzysztof.nagraba.todoapp.exception.UserNotFoundException;
 import krzysztof.nagraba.todoapp.repository.UserRepository;
@@ -23,6 +24,7 @@ import static org.mockito.Mockito.*;
 class UserServiceTest {
 
     @Mock UserRepository userRepository;
+    @Mock RowEstimateService rowEstimateService;
 
     @InjectMocks UserService userService;
 
@@ -61,6 +63,28 @@ class UserServiceTest {
         verifyNoMoreInteractions(userRepository);
     }
 
+    @Test
+    void getAllUsersSlice_shouldReturnSliceWithoutCount_andOptionalEstimate() {
+        // given
+        User u1 = userWithId(1L, "a@b.com", Role.USER, true);
+        when(userRepository.findAllBy(any(Pageable.class))).thenReturn(new SliceImpl<>(List.of(u1), pageable(), true));
+        when(rowEstimateService.users()).thenReturn(5000L);
+
+        // when
+        SliceResponse<UserResponse> withEstimate = userService.getAllUsersSlice(pageable(), true);
+        SliceResponse<UserResponse> withoutEstimate = userService.getAllUsersSlice(pageable(), false);
+
+        // then
+        assertThat(withEstimate.getContent()).extracting(UserResponse::getEmail).containsExactly("a@b.com");
+        assertThat(withEstimate.isHasNext()).isTrue();
+        assertThat(withEstimate.getEstimatedTotal()).isEqualTo(5000L);
+        assertThat(withoutEstimate.getEstimatedTotal()).isNull();
+
+        verify(userRepository, times(2)).findAllBy(any(Pageable.class));
+        verify(rowEstimateService).users();
+        verifyNoMoreInteractions(userRepository, rowEstimateService);
+    }
+
     @Test
     void getUserById_shouldReturnMappedUserResponse_whenUserExists() {
         // given